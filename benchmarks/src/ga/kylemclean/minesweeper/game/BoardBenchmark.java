@@ -0,0 +1,219 @@
+package ga.kylemclean.minesweeper.game;
+
+import com.badlogic.gdx.math.RandomXS128;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the board rules on square boards from 9x9 to 4096x4096 with 16% mines.
+ * Every board is generated from the same seed, so runs are comparable between releases.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark {
+
+    private static final long SEED = 0x5EED;
+    /** The cells GameScreen opens per step of a gradual reveal. */
+    private static final int REVEAL_STEP_CELLS = 4096;
+
+    /**
+     * A generated board with its first cell opened.
+     */
+    @State(Scope.Thread)
+    public static class Game {
+
+        @Param({"9", "64", "512", "4096"})
+        int size;
+
+        Board board;
+        RandomXS128 random;
+        int centre;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            board = new Board(size, size, Math.max(1, size * size * 16 / 100));
+            random = new RandomXS128();
+            centre = size / 2;
+            start();
+            findCells();
+        }
+
+        /**
+         * Find the cells the benchmarks work on, once the board has been generated.
+         */
+        void findCells() {
+        }
+
+        /**
+         * Generate the same board again and open the first cell.
+         */
+        void start() {
+            board.reset();
+            random.setSeed(SEED);
+            board.generate(centre, centre, random);
+            board.open(centre, centre);
+        }
+
+    }
+
+    /**
+     * A game that is started again before every invocation, for benchmarks that change it.
+     */
+    @State(Scope.Thread)
+    public static class FreshGame extends Game {
+
+        /** A cell that chording opens cells around, once the mines around it are flagged. */
+        int chordCell;
+        /** A mine that is not opened by the first click, and not flagged around chordCell. */
+        int mineCell;
+
+        @Override
+        void findCells() {
+            chordCell = -1;
+            for (int y = 0; y < size && chordCell < 0; y++) {
+                for (int x = 0; x < size && chordCell < 0; x++) {
+                    if (board.isOpened(x, y) && board.getSurroundingMines(x, y) > 0
+                            && hasClosedSafeNeighbour(x, y)) {
+                        chordCell = y * size + x;
+                    }
+                }
+            }
+            mineCell = -1;
+            for (int y = 0; y < size && mineCell < 0; y++) {
+                for (int x = 0; x < size && mineCell < 0; x++) {
+                    if (board.isMine(x, y) && !isAroundChordCell(x, y)) {
+                        mineCell = y * size + x;
+                    }
+                }
+            }
+
+            // Make sure that loseGame measures losing rather than opening a flag, which does nothing.
+            restart();
+            board.open(mineCell % size, mineCell / size);
+            if (!board.isLost()) {
+                throw new IllegalStateException("Opening mine " + mineCell + " did not lose the game");
+            }
+        }
+
+        @Setup(Level.Invocation)
+        public void restart() {
+            start();
+            if (chordCell >= 0) {
+                int x = chordCell % size;
+                int y = chordCell / size;
+                for (int ny = Math.max(y - 1, 0); ny <= Math.min(y + 1, size - 1); ny++) {
+                    for (int nx = Math.max(x - 1, 0); nx <= Math.min(x + 1, size - 1); nx++) {
+                        if (board.isMine(nx, ny)) {
+                            board.toggleFlag(nx, ny);
+                        }
+                    }
+                }
+            }
+        }
+
+        private boolean isAroundChordCell(int x, int y) {
+            return chordCell >= 0 && Math.abs(x - chordCell % size) <= 1 && Math.abs(y - chordCell / size) <= 1;
+        }
+
+        private boolean hasClosedSafeNeighbour(int x, int y) {
+            for (int ny = Math.max(y - 1, 0); ny <= Math.min(y + 1, size - 1); ny++) {
+                for (int nx = Math.max(x - 1, 0); nx <= Math.min(x + 1, size - 1); nx++) {
+                    if (!board.isOpened(nx, ny) && !board.isMine(nx, ny)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+    }
+
+    /**
+     * A board with no mines, cleared before every invocation, so the first click opens every cell.
+     */
+    @State(Scope.Thread)
+    public static class EmptyBoard {
+
+        @Param({"9", "64", "512", "4096"})
+        int size;
+
+        Board board;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            board = new Board(size, size, 0);
+        }
+
+        @Setup(Level.Invocation)
+        public void clear() {
+            board.reset();
+            board.generate(0, 0);
+        }
+
+    }
+
+    /**
+     * Clear the board and place and label the mines, as starting a new game does.
+     */
+    @Benchmark
+    public int generate(Game game) {
+        game.board.reset();
+        game.random.setSeed(SEED);
+        game.board.generate(game.centre, game.centre, game.random);
+        return game.board.getCell(0, 0);
+    }
+
+    /**
+     * Label every cell with its surrounding mines.
+     */
+    @Benchmark
+    public int label(Game game) {
+        game.board.generateCellLabels();
+        return game.board.getCell(0, 0);
+    }
+
+    @Benchmark
+    public int floodFill(EmptyBoard empty) {
+        return empty.board.open(0, 0);
+    }
+
+    /**
+     * Open the first step of an empty region, which is all a click does before the rest is
+     * revealed over the following frames. Unlike floodFill, this should not grow with the board.
+     */
+    @Benchmark
+    public int revealStep(EmptyBoard empty) {
+        return empty.board.openGradually(0, 0, REVEAL_STEP_CELLS);
+    }
+
+    @Benchmark
+    public int chord(FreshGame game) {
+        return game.chordCell >= 0 ? game.board.chord(game.chordCell % game.size, game.chordCell / game.size) : 0;
+    }
+
+    /**
+     * Open a mine, which loses the game and reveals every mine and wrong flag.
+     */
+    @Benchmark
+    public boolean loseGame(FreshGame game) {
+        game.board.open(game.mineCell % game.size, game.mineCell / game.size);
+        return game.board.isLost();
+    }
+
+}
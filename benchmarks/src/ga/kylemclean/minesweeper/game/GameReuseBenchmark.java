@@ -0,0 +1,79 @@
+package ga.kylemclean.minesweeper.game;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of starting new games on a board that is kept between them, as GameScreen does
+ * for every game played.
+ * <p>
+ * Run with {@code -prof gc}: gc.alloc.rate.norm should stay at or near 0 bytes per operation,
+ * as resetting and resizing the board within the sizes already played reuse its storage, and
+ * that of its solver.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameReuseBenchmark {
+
+    /** The beginner, intermediate and expert sizes, as width, height and mines. */
+    private static final int[][] PRESETS = {{9, 9, 10}, {16, 16, 40}, {30, 16, 99}};
+
+    private Board board;
+    private Solver solver;
+    private SplitMix64 random;
+    private long seed;
+    private int preset;
+
+    @Setup
+    public void setUp() {
+        // Start at the largest size, so that the smaller ones fit in its storage.
+        board = new Board(30, 16, 99);
+        solver = new Solver(board);
+        board.setJournal(new UndoJournal());
+        random = new SplitMix64(0);
+    }
+
+    /**
+     * Start a game of the same size again, as F2 or SPACE does.
+     */
+    @Benchmark
+    public int restartSameSize() {
+        board.reset();
+        solver.reset();
+        return start();
+    }
+
+    /**
+     * Start a game of the next size, as going back to the menu and picking another size does.
+     */
+    @Benchmark
+    public int restartOtherSize() {
+        preset = (preset + 1) % PRESETS.length;
+        board.resize(PRESETS[preset][0], PRESETS[preset][1], PRESETS[preset][2]);
+        solver.reset();
+        return start();
+    }
+
+    private int start() {
+        int x = board.getWidth() / 2;
+        int y = board.getHeight() / 2;
+        random.setSeed(seed++);
+        board.generate(x, y, random);
+        return board.open(x, y);
+    }
+
+}
@@ -0,0 +1,113 @@
+package ga.kylemclean.minesweeper.game;
+
+import com.badlogic.gdx.math.RandomXS128;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the solver and the probability engine on the beginner, intermediate and
+ * expert board sizes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SolverBenchmark {
+
+    /** Board width, height and mines. */
+    @Param({"9x9x10", "16x16x40", "30x16x99"})
+    private String preset;
+
+    private int width, height;
+    private Board board;
+    private Solver solver;
+    private RandomXS128 random;
+    private long seed;
+
+    private Board stuckBoard;
+    private ProbabilityEngine probabilityEngine;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String[] parts = preset.split("x");
+        width = Integer.parseInt(parts[0]);
+        height = Integer.parseInt(parts[1]);
+        int mines = Integer.parseInt(parts[2]);
+        board = new Board(width, height, mines);
+        solver = new Solver(board);
+        random = new RandomXS128();
+
+        // Find a game that the solver gets stuck in, for the probability engine to work on.
+        stuckBoard = new Board(width, height, mines);
+        Solver stuckSolver = new Solver(stuckBoard);
+        for (long stuckSeed = 0; ; stuckSeed++) {
+            play(stuckBoard, stuckSolver, stuckSeed);
+            if (!stuckBoard.isFinished()) {
+                break;
+            }
+        }
+        stuckSolver.dispose();
+        probabilityEngine = new ProbabilityEngine(stuckBoard);
+    }
+
+    /**
+     * Play a whole game with the solver, on a new board each time.
+     *
+     * @return The number of cells the solver opened.
+     */
+    @Benchmark
+    public int solveGame() {
+        play(board, solver, seed++);
+        return board.getCellsOpened();
+    }
+
+    /**
+     * Work out the mine probabilities of a game the solver is stuck in.
+     */
+    @Benchmark
+    public float probabilities() {
+        probabilityEngine.compute();
+        return probabilityEngine.getProbability(0, 0);
+    }
+
+    /**
+     * Generate a board from a seed and let the solver make every move it can prove.
+     */
+    private void play(Board board, Solver solver, long seed) {
+        board.reset();
+        solver.reset();
+        random.setSeed(seed);
+        board.generate(width / 2, height / 2, random);
+        board.open(width / 2, height / 2);
+        while (!board.isFinished()) {
+            solver.solve();
+            int cell = solver.nextSafeCell();
+            if (cell >= 0) {
+                board.open(cell % width, cell / width);
+                continue;
+            }
+            cell = solver.nextMineCell();
+            if (cell >= 0) {
+                board.toggleFlag(cell % width, cell / width);
+                continue;
+            }
+            break;
+        }
+    }
+
+}
@@ -9,28 +9,46 @@ import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.g2d.TextureAtlas;
 import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
 import com.badlogic.gdx.scenes.scene2d.ui.Skin;
+import com.badlogic.gdx.utils.TimeUtils;
 import com.badlogic.gdx.utils.viewport.ScreenViewport;
 
+import ga.kylemclean.minesweeper.screens.EndlessGameScreen;
+import ga.kylemclean.minesweeper.screens.GameScreen;
+import ga.kylemclean.minesweeper.screens.LoadingScreen;
 import ga.kylemclean.minesweeper.screens.MenuScreen;
 
 public class Minesweeper extends Game {
 
+	/** The time in milliseconds that loading assets may take each frame. */
+	private static final int LOAD_FRAME_BUDGET = 10;
+
 	public AssetManager assets;
 
 	public SpriteBatch batch;
 	public OrthographicCamera gameCamera, fixedCamera;
 	public ScreenViewport viewport;
 	public ShapeRenderer shapeRenderer;
+	/** Created with the game, so that a launcher can set it to measuring mode. */
+	public final RenderScheduler renderScheduler = new RenderScheduler();
+
+	/** Screens are created the first time they are shown, and kept for every later visit. */
+	private MenuScreen menuScreen;
+	private GameScreen gameScreen;
+	private EndlessGameScreen endlessGameScreen;
 
 	private boolean finishedLoadingAssets;
+	/** When the app was created, and whether its first interactive frame has been logged. */
+	private long createTime;
+	private boolean loggedFirstInteractiveFrame;
 
 	@Override
 	public void create() {
-		// Create asset manager and load assets.
+		createTime = TimeUtils.millis();
+		renderScheduler.start();
+
+		// Create asset manager and queue assets, which load over the next frames.
 		assets = new AssetManager();
 		loadAssets();
-		assets.finishLoading();
-		onFinishLoadingAssets();
 
 		// Initialize SpriteBatch, ScreenViewport, and OrthographicCamera.
 		batch = new SpriteBatch();
@@ -41,34 +59,82 @@ public class Minesweeper extends Game {
 		viewport = new ScreenViewport(gameCamera);
 		// Initialize ShapeRenderer
 		shapeRenderer = new ShapeRenderer();
-		setScreen(new MenuScreen(this));
+		setScreen(new LoadingScreen(this));
 	}
 
 	@Override
 	public void render() {
+		if (!finishedLoadingAssets) {
+			if (assets.update(LOAD_FRAME_BUDGET)) {
+				onFinishLoadingAssets();
+			} else {
+				// Keep drawing frames so that loading carries on.
+				renderScheduler.requestFrame();
+			}
+		}
+
 		super.render();
 
-		assets.update();
+		if (!loggedFirstInteractiveFrame && !(getScreen() instanceof LoadingScreen)) {
+			loggedFirstInteractiveFrame = true;
+			Gdx.app.log("Startup", "first interactive frame on " + Gdx.app.getType()
+					+ " after " + (TimeUtils.millis() - createTime) + " ms");
+		}
+		renderScheduler.frameDrawn();
 	}
 
 	/**
-	 * Loads all game assets.
+	 * Queues all game assets. They load in the order they are queued, so the menu's skin
+	 * comes first and the menu can be shown while the game's assets are still loading.
 	 */
 	private void loadAssets() {
-		assets.load("textures/cells/pack.atlas", TextureAtlas.class);
-		assets.load("textures/ui/pack.atlas", TextureAtlas.class);
 		assets.load("ui/uiskin.json", Skin.class);
 		assets.load("ui/arial-32.fnt", BitmapFont.class);
+		assets.load("textures/cells/pack.atlas", TextureAtlas.class);
+		assets.load("textures/ui/pack.atlas", TextureAtlas.class);
+	}
+
+	public MenuScreen getMenuScreen() {
+		if (menuScreen == null) {
+			menuScreen = new MenuScreen(this);
+		}
+		return menuScreen;
+	}
+
+	public GameScreen getGameScreen() {
+		if (gameScreen == null) {
+			gameScreen = new GameScreen(this);
+		}
+		return gameScreen;
+	}
+
+	public EndlessGameScreen getEndlessGameScreen() {
+		if (endlessGameScreen == null) {
+			endlessGameScreen = new EndlessGameScreen(this);
+		}
+		return endlessGameScreen;
+	}
+
+	/**
+	 * Loads whatever assets are still loading, blocking until they are done. Called by screens
+	 * that need the game's assets, in case the player got to them before they streamed in.
+	 */
+	public void finishLoadingAssets() {
+		if (!finishedLoadingAssets) {
+			assets.finishLoading();
+			onFinishLoadingAssets();
+		}
 	}
 
 	/**
-	 * Starts game. Called once when the AssetManager finishes loading assets
-	 * for the first time.
+	 * Called once when the AssetManager finishes loading assets for the first time.
+	 * After this, the AssetManager is no longer polled every frame.
 	 */
 	private void onFinishLoadingAssets() {
 		finishedLoadingAssets = true;
 
-		Gdx.app.log("AssetManager", "finished loading assets");
+		Gdx.app.log("AssetManager", "finished loading assets after "
+				+ (TimeUtils.millis() - createTime) + " ms");
 	}
 
 	@Override
@@ -89,6 +155,15 @@ public class Minesweeper extends Game {
 	@Override
 	public void dispose() {
 		super.dispose();
+		if (menuScreen != null) {
+			menuScreen.dispose();
+		}
+		if (gameScreen != null) {
+			gameScreen.dispose();
+		}
+		if (endlessGameScreen != null) {
+			endlessGameScreen.dispose();
+		}
 		batch.dispose();
 		shapeRenderer.dispose();
 		assets.dispose();
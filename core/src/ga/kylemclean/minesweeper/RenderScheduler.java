@@ -0,0 +1,96 @@
+package ga.kylemclean.minesweeper;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.utils.TimeUtils;
+import com.badlogic.gdx.utils.Timer;
+
+/**
+ * Draws frames only when something on screen is changing, instead of at the full frame rate.
+ * <p>
+ * Continuous rendering is turned off, so the backend draws a frame when an input event arrives,
+ * when a Scene2D action is running (stages request rendering for their actions by default),
+ * and when a frame is asked for here. Screens ask for the next frame while they are animating,
+ * and for a frame at a later time when something will change then, such as the timer ticking.
+ * However idle the game is, a frame is drawn at least every {@link #IDLE_INTERVAL} seconds.
+ * <p>
+ * In measuring mode, the number of frames drawn each minute is logged.
+ */
+public class RenderScheduler {
+
+    /** The longest time in seconds between frames. */
+    public static final float IDLE_INTERVAL = 1;
+    /** The time in milliseconds over which frames are counted in measuring mode. */
+    private static final long MEASURE_INTERVAL = 60000;
+
+    private Timer.Task frameTask;
+    /** The time in nanoseconds at which {@link #frameTask} is due, while it is scheduled. */
+    private long frameTaskTime;
+
+    private boolean measuring;
+    private int framesDrawn;
+    private long measureStart;
+
+    /**
+     * Turn continuous rendering off. Must be called once the app has been created.
+     */
+    public void start() {
+        frameTask = new Timer.Task() {
+            @Override
+            public void run() {
+                Gdx.graphics.requestRendering();
+            }
+        };
+        Gdx.graphics.setContinuousRendering(false);
+        measureStart = TimeUtils.millis();
+    }
+
+    /**
+     * @param measuring Whether to log the number of frames drawn each minute.
+     */
+    public void setMeasuring(boolean measuring) {
+        this.measuring = measuring;
+    }
+
+    /**
+     * Draw another frame straight after this one.
+     */
+    public void requestFrame() {
+        Gdx.graphics.requestRendering();
+    }
+
+    /**
+     * Draw a frame after a delay, unless one is already due sooner.
+     *
+     * @param seconds The delay in seconds.
+     */
+    public void requestFrameIn(float seconds) {
+        long time = TimeUtils.nanoTime() + (long) (seconds * 1e9);
+        if (frameTask.isScheduled()) {
+            if (frameTaskTime <= time) {
+                return;
+            }
+            frameTask.cancel();
+        }
+        frameTaskTime = time;
+        Timer.schedule(frameTask, seconds);
+    }
+
+    /**
+     * Called by the game after every frame it draws.
+     */
+    void frameDrawn() {
+        requestFrameIn(IDLE_INTERVAL);
+        if (!measuring) {
+            return;
+        }
+        framesDrawn++;
+        long now = TimeUtils.millis();
+        if (now - measureStart >= MEASURE_INTERVAL) {
+            Gdx.app.log("RenderScheduler", framesDrawn * MEASURE_INTERVAL / (now - measureStart)
+                    + " frames drawn per minute");
+            framesDrawn = 0;
+            measureStart = now;
+        }
+    }
+
+}
@@ -0,0 +1,997 @@
+package ga.kylemclean.minesweeper.game;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntSet;
+import com.badlogic.gdx.utils.async.AsyncResult;
+import com.badlogic.gdx.utils.async.AsyncTask;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * The rules and state of a Minesweeper board, independent of how it is drawn.
+ * <p>
+ * Every cell is packed into one byte of a flat array indexed by {@code y * width + x}.
+ * The low four bits hold the number of surrounding mines and the upper bits hold the
+ * {@link #MINE}, {@link #OPENED} and {@link #FLAGGED} flags, so a 4096x4096 board
+ * takes 16 MiB.
+ * <p>
+ * The indices of the mines and of the flagged cells are also kept, so that losing, which
+ * shows every mine and wrong flag, only has to visit those cells.
+ */
+public class Board {
+
+    /** Bits of a cell holding the number of mines surrounding it (0-8). */
+    public static final int SURROUNDING_MINES_MASK = 0x0F;
+    /** Set if the cell is a mine. */
+    public static final int MINE = 0x10;
+    /** Set if the cell has been opened. */
+    public static final int OPENED = 0x20;
+    /** Set if the cell has been flagged. */
+    public static final int FLAGGED = 0x40;
+
+    /** Boards with at least this many cells are labelled on several threads. */
+    private static final int PARALLEL_LABEL_CELLS = 1 << 20;
+
+    private int width;
+    private int height;
+    private int mines;
+    private byte[] cells;
+    /** Mine positions as a bitboard, {@link #rowWords} longs per row with bit x%64 set for a mine. */
+    private long[] mineRows;
+    private int rowWords;
+    /** The index of every mine, in ascending order. */
+    private int[] mineCells;
+    /** The index of every flagged cell. */
+    private IntSet flaggedCells;
+    /** Where moves are recorded so they can be undone, or null. */
+    private UndoJournal journal;
+
+    private int cellsOpened;
+    private int cellsFlagged;
+    private boolean generated;
+    private boolean won;
+    private boolean lost;
+
+    /** Work queue of (row, left, right) spans reused by the flood fill, from fillHead to fillTail. */
+    private int[] fillQueue;
+    private int fillHead, fillTail;
+    /** The rectangle of cells opened by the flood fill since it last reported them. */
+    private int fillMinX, fillMinY, fillMaxX, fillMaxY;
+    /** Whether a region started by {@link #openGradually(int, int, int)} is still being opened. */
+    private boolean filling;
+    /**
+     * Whether the region being opened reports each span's cells as they open, rather than one
+     * rectangle at the end. A gradual fill grows up and down at once, so the rectangle of one
+     * step would span most of what is already open.
+     */
+    private boolean reportEachSpan;
+
+    private Array<BoardListener> listeners;
+    /** Indices of the cells in the 3x3 space kept free of mines, in ascending order, while generating. */
+    private final int[] safeCells = new int[9];
+
+    /**
+     * Create an empty board. Mines are not placed until {@link #generate(int, int)} is called.
+     *
+     * @param width  The width of the board in cells.
+     * @param height The height of the board in cells.
+     * @param mines  The number of mines to be generated on the board.
+     */
+    public Board(int width, int height, int mines) {
+        checkSize(width, height, mines);
+        this.width = width;
+        this.height = height;
+        this.mines = mines;
+        cells = new byte[width * height];
+        rowWords = (width + 63) >>> 6;
+        mineRows = new long[height * rowWords];
+        mineCells = new int[mines];
+        flaggedCells = new IntSet();
+        listeners = new Array<BoardListener>(false, 2);
+    }
+
+    private static void checkSize(int width, int height, int mines) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Board size must be positive: " + width + "x" + height);
+        }
+        if (mines < 0 || mines >= width * height) {
+            throw new IllegalArgumentException("Cannot place " + mines + " mines on a "
+                    + width + "x" + height + " board");
+        }
+    }
+
+    /**
+     * Change the size of the board and its number of mines, clearing it as {@link #reset()}
+     * does. The cell storage is kept when it is big enough for the new size, so playing
+     * boards of the same or a smaller size again doesn't allocate.
+     *
+     * @param width  The new width of the board in cells.
+     * @param height The new height of the board in cells.
+     * @param mines  The number of mines to be generated on the board.
+     */
+    public void resize(int width, int height, int mines) {
+        checkSize(width, height, mines);
+        this.width = width;
+        this.height = height;
+        this.mines = mines;
+        rowWords = (width + 63) >>> 6;
+        if (cells.length < width * height) {
+            cells = new byte[width * height];
+        }
+        if (mineRows.length < height * rowWords) {
+            mineRows = new long[height * rowWords];
+        }
+        if (mineCells.length < mines) {
+            mineCells = new int[mines];
+        }
+        reset();
+    }
+
+    /**
+     * Fills the board with mines and labels every cell with its surrounding mines.
+     * Mines will not be generated in a 3x3 space around the first cell the user opened.
+     *
+     * @param initialX The x position on the board of the first cell the user clicked.
+     * @param initialY The y position on the board of the first cell the user clicked.
+     */
+    public void generate(int initialX, int initialY) {
+        generate(initialX, initialY, MathUtils.random);
+    }
+
+    /**
+     * Fills the board with mines drawn from the given random number generator, and labels
+     * every cell with its surrounding mines. The same generator state and first cell always
+     * give the same board.
+     *
+     * @param initialX The x position on the board of the first cell the user clicked.
+     * @param initialY The y position on the board of the first cell the user clicked.
+     * @param random   The random number generator to place the mines with.
+     */
+    public void generate(int initialX, int initialY, Random random) {
+        GameTracer tracer = GameTracer.get();
+        Object event = tracer != null ? tracer.begin(GameTracer.GENERATE_MINES) : null;
+        generateMines(initialX, initialY, random);
+        if (event != null) {
+            tracer.end(event, this, 0);
+        }
+        indexMines();
+        generateCellLabels();
+        generated = true;
+    }
+
+    /**
+     * Places {@link #mines} mines on the board, avoiding the 3x3 space around (initialX, initialY).
+     * <p>
+     * Uses Floyd's sampling algorithm over the cells outside that space, so every set of mine
+     * positions is equally likely and exactly {@code mines} random numbers are drawn. The
+     * board's own mine bits serve as the set of cells chosen so far.
+     *
+     * @param initialX The x position on the board of the first cell the user clicked.
+     * @param initialY The y position on the board of the first cell the user clicked.
+     * @param random   The random number generator to place the mines with.
+     * @throws IllegalArgumentException If there are fewer free cells than mines.
+     */
+    private void generateMines(int initialX, int initialY, Random random) {
+        int[] safeCells = this.safeCells;
+        int safeCount = 0;
+        for (int y = Math.max(initialY - 1, 0); y <= Math.min(initialY + 1, height - 1); y++) {
+            for (int x = Math.max(initialX - 1, 0); x <= Math.min(initialX + 1, width - 1); x++) {
+                safeCells[safeCount++] = y * width + x;
+            }
+        }
+        int freeCells = width * height - safeCount;
+        if (mines > freeCells) {
+            throw new IllegalArgumentException("Cannot place " + mines + " mines in "
+                    + freeCells + " free cells");
+        }
+
+        for (int j = freeCells - mines; j < freeCells; j++) {
+            int index = freeCellIndex(random.nextInt(j + 1), safeCells, safeCount);
+            if ((cells[index] & MINE) != 0) {
+                // Already chosen, so choose the j-th free cell instead, which can't have been.
+                index = freeCellIndex(j, safeCells, safeCount);
+            }
+            cells[index] |= MINE;
+            int x = index % width;
+            mineRows[(index / width) * rowWords + (x >>> 6)] |= 1L << (x & 63);
+        }
+    }
+
+    /**
+     * List the mines in {@link #mineCells} in ascending order, from the {@link #mineRows} bitboard.
+     */
+    private void indexMines() {
+        int placed = 0;
+        for (int y = 0; y < height; y++) {
+            int row = y * rowWords;
+            for (int k = 0; k < rowWords; k++) {
+                long word = mineRows[row + k];
+                int base = y * width + (k << 6);
+                while (word != 0) {
+                    mineCells[placed++] = base + Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Map the n-th free cell to its index on the board by skipping over the safe cells.
+     *
+     * @param n         The position of the cell among the free cells.
+     * @param safeCells The indices of the cells that can't be mines, in ascending order.
+     * @param safeCount The number of entries in safeCells.
+     * @return The index of the cell on the board.
+     */
+    private static int freeCellIndex(int n, int[] safeCells, int safeCount) {
+        int index = n;
+        for (int i = 0; i < safeCount && safeCells[i] <= index; i++) {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Generates the labels for each cell based on their surrounding mines.
+     * <p>
+     * Large boards are split into stripes of rows that are labelled in parallel on the
+     * {@link Workers} pool. The calling thread labels the first stripe itself. Labelling
+     * is idempotent, and package-private so that the benchmarks can time it on its own.
+     */
+    void generateCellLabels() {
+        GameTracer tracer = GameTracer.get();
+        Object event = tracer != null ? tracer.begin(GameTracer.GENERATE_CELL_LABELS) : null;
+        labelStripes();
+        if (event != null) {
+            tracer.end(event, this, 0);
+        }
+    }
+
+    /**
+     * Label every cell, splitting large boards into stripes of rows as described in
+     * {@link #generateCellLabels()}.
+     */
+    private void labelStripes() {
+        int stripes = width * height >= PARALLEL_LABEL_CELLS ? Math.min(Workers.THREADS, height) : 1;
+        if (stripes <= 1) {
+            labelRows(0, height);
+            return;
+        }
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        AsyncResult<Void>[] results = new AsyncResult[stripes - 1];
+        for (int i = 1; i < stripes; i++) {
+            final int startY = height * i / stripes;
+            final int endY = height * (i + 1) / stripes;
+            results[i - 1] = Workers.get().submit(new AsyncTask<Void>() {
+                @Override
+                public Void call() {
+                    labelRows(startY, endY);
+                    return null;
+                }
+            });
+        }
+        labelRows(0, height / stripes);
+        for (AsyncResult<Void> result : results) {
+            result.get();
+        }
+    }
+
+    /**
+     * Label the cells in a range of rows from the {@link #mineRows} bitboard.
+     * <p>
+     * For each 64-cell word of a row, the eight neighbour masks are the rows above, below
+     * and at the word shifted one cell left and right. They are added together with a tree
+     * of bitwise full adders into four bit planes, so bit i of plane n is bit n of the number
+     * of mines around cell i. Only cells with at least one surrounding mine are written, as
+     * the labels of a cleared board are already zero.
+     *
+     * @param startY The first row to label.
+     * @param endY   The row after the last row to label.
+     */
+    private void labelRows(int startY, int endY) {
+        long[] rows = mineRows;
+        int words = rowWords;
+        // Cells past the right edge of the board in the last word of each row.
+        long lastWordMask = (width & 63) == 0 ? -1L : (1L << (width & 63)) - 1;
+        for (int y = startY; y < endY; y++) {
+            int row = y * words;
+            int above = y < height - 1 ? row + words : -1;
+            int below = y > 0 ? row - words : -1;
+            for (int k = 0; k < words; k++) {
+                long n = 0, nw = 0, ne = 0, s = 0, sw = 0, se = 0;
+                if (above >= 0) {
+                    n = rows[above + k];
+                    nw = shiftWest(rows, above, k, words);
+                    ne = shiftEast(rows, above, k, words);
+                }
+                if (below >= 0) {
+                    s = rows[below + k];
+                    sw = shiftWest(rows, below, k, words);
+                    se = shiftEast(rows, below, k, words);
+                }
+                long w = shiftWest(rows, row, k, words);
+                long e = shiftEast(rows, row, k, words);
+
+                // Full adders (n, nw, ne) and (s, sw, se), half adder (w, e).
+                long s1 = n ^ nw ^ ne;
+                long c1 = (n & nw) | (ne & (n ^ nw));
+                long s2 = s ^ sw ^ se;
+                long c2 = (s & sw) | (se & (s ^ sw));
+                long s3 = w ^ e;
+                long c3 = w & e;
+                // Ones: s1 + s2 + s3.
+                long bit0 = s1 ^ s2 ^ s3;
+                long c4 = (s1 & s2) | (s3 & (s1 ^ s2));
+                // Twos: c1 + c2 + c3 + c4.
+                long t1 = c1 ^ c2 ^ c3;
+                long d1 = (c1 & c2) | (c3 & (c1 ^ c2));
+                long bit1 = t1 ^ c4;
+                long d2 = t1 & c4;
+                // Fours and eights: d1 + d2.
+                long bit2 = d1 ^ d2;
+                long bit3 = d1 & d2;
+
+                // Mines keep a label of zero.
+                long labelled = (bit0 | bit1 | bit2 | bit3) & ~rows[row + k];
+                if (k == words - 1) {
+                    labelled &= lastWordMask;
+                }
+                int base = y * width + (k << 6);
+                while (labelled != 0) {
+                    int i = Long.numberOfTrailingZeros(labelled);
+                    labelled &= labelled - 1;
+                    int count = (int) ((bit0 >>> i) & 1) | (int) ((bit1 >>> i) & 1) << 1
+                            | (int) ((bit2 >>> i) & 1) << 2 | (int) ((bit3 >>> i) & 1) << 3;
+                    cells[base + i] |= count;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return Word k of a bitboard row moved so that bit i holds the cell to the left of cell i.
+     */
+    private static long shiftWest(long[] rows, int row, int k, int words) {
+        long word = rows[row + k] << 1;
+        return k > 0 ? word | (rows[row + k - 1] >>> 63) : word;
+    }
+
+    /**
+     * @return Word k of a bitboard row moved so that bit i holds the cell to the right of cell i.
+     */
+    private static long shiftEast(long[] rows, int row, int k, int words) {
+        long word = rows[row + k] >>> 1;
+        return k < words - 1 ? word | (rows[row + k + 1] << 63) : word;
+    }
+
+    /**
+     * Open the cell at the specified location. If the cell has no surrounding mines,
+     * open all surrounding cells as well.
+     *
+     * @param x The x-coordinate of the cell to open.
+     * @param y The y-coordinate of the cell to open.
+     * @return The number of safe cells that were opened.
+     */
+    public int open(int x, int y) {
+        finishOpening();
+        if (isFinished()) {
+            return 0;
+        }
+        beginMove();
+        int opened = openCell(x, y, Integer.MAX_VALUE);
+        endMove();
+        return opened;
+    }
+
+    /**
+     * Open the cell at the specified location like {@link #open(int, int)}, but if it has no
+     * surrounding mines, only open about maxCells cells of the empty region now. The rest is
+     * opened by {@link #continueOpening(int)}, outward from the cell a row at a time.
+     * <p>
+     * The region is only partly open in between, so the game can't be won until it is
+     * finished. Any other move, including another open, finishes it first.
+     *
+     * @param x        The x-coordinate of the cell to open.
+     * @param y        The y-coordinate of the cell to open.
+     * @param maxCells About the most cells to open now.
+     * @return The number of safe cells that were opened now.
+     */
+    public int openGradually(int x, int y, int maxCells) {
+        finishOpening();
+        if (isFinished()) {
+            return 0;
+        }
+        beginMove();
+        reportEachSpan = true;
+        int opened = openCell(x, y, maxCells);
+        reportEachSpan = false;
+        if (!filling) {
+            endMove();
+        }
+        return opened;
+    }
+
+    /**
+     * Open more of the region started by {@link #openGradually(int, int, int)}.
+     *
+     * @param maxCells About the most cells to open.
+     * @return The number of cells that were opened.
+     */
+    public int continueOpening(int maxCells) {
+        if (!filling) {
+            return 0;
+        }
+        reportEachSpan = true;
+        int opened = fillSpans(maxCells);
+        reportEachSpan = false;
+        addOpened(opened);
+        if (!filling) {
+            endMove();
+        }
+        return opened;
+    }
+
+    /**
+     * @return Whether a region started by {@link #openGradually(int, int, int)} is still being opened.
+     */
+    public boolean isOpening() {
+        return filling;
+    }
+
+    /**
+     * Open the rest of a region started by {@link #openGradually(int, int, int)}, if there is one.
+     */
+    private void finishOpening() {
+        if (filling) {
+            continueOpening(Integer.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Open a cell, and about maxCells cells of the empty region around it if it has no
+     * surrounding mines.
+     *
+     * @return The number of safe cells that were opened.
+     */
+    private int openCell(int x, int y, int maxCells) {
+        int index = y * width + x;
+        int cell = cells[index];
+        if ((cell & (OPENED | FLAGGED)) != 0) {
+            return 0;
+        }
+        cells[index] = (byte) (cell | OPENED);
+        record(index << 1);
+        if ((cell & MINE) != 0) {
+            lost = true;
+            revealMines();
+            return 0;
+        }
+        int opened = 1;
+        if ((cell & SURROUNDING_MINES_MASK) == 0) {
+            // There are no surrounding mines
+            opened += startFill(index);
+            opened += fillSpans(maxCells - opened);
+        } else {
+            cellsChanged(x, y, x, y);
+        }
+        addOpened(opened);
+        return opened;
+    }
+
+    /**
+     * Count newly opened safe cells, and win the game once every safe cell is open.
+     */
+    private void addOpened(int opened) {
+        cellsOpened += opened;
+        if (cellsOpened == width * height - mines) {
+            won = true;
+        }
+    }
+
+    /**
+     * Report the cells that are drawn differently once the game is lost, the unflagged mines
+     * and wrong flags, as changed. Their bounding rectangle is found from the mine and flag
+     * indices, so this costs O(mines + flags) rather than a scan of the board.
+     */
+    private void revealMines() {
+        int first = -1, last = -1;
+        int minX = width, maxX = -1;
+        for (int i = 0; i < mines; i++) {
+            int index = mineCells[i];
+            if ((cells[index] & FLAGGED) == 0) {
+                if (first < 0) {
+                    first = index;
+                }
+                last = index;
+                // Once the rectangle spans every column, only the last row is left to find.
+                if (minX > 0 || maxX < width - 1) {
+                    int x = index % width;
+                    minX = Math.min(minX, x);
+                    maxX = Math.max(maxX, x);
+                }
+            }
+        }
+        IntSet.IntSetIterator flags = flaggedCells.iterator();
+        while (flags.hasNext) {
+            int index = flags.next();
+            if ((cells[index] & MINE) == 0) {
+                int x = index % width;
+                first = first < 0 ? index : Math.min(first, index);
+                last = Math.max(last, index);
+                minX = Math.min(minX, x);
+                maxX = Math.max(maxX, x);
+            }
+        }
+        if (last >= 0) {
+            cellsChanged(minX, first / width, maxX, last / width);
+        }
+    }
+
+    /**
+     * Start opening the empty region around an opened cell with no surrounding mines, by
+     * opening the run of cells with no surrounding mines in its row.
+     * <p>
+     * This is a scanline fill: runs of cells with no surrounding mines are opened a row at a
+     * time and added to {@link #fillQueue} as (row, left, right) spans, and each span taken
+     * from the queue opens the row above and below it, from one cell left of the span to one
+     * cell right of it. The queue is first in, first out, so the region opens outward from
+     * the start cell, and it is kept between calls, so opening a region does not allocate
+     * once the queue has grown to fit the board.
+     *
+     * @param start The index of an opened cell with no surrounding mines.
+     * @return The number of cells that were opened, not counting the start cell.
+     */
+    private int startFill(int start) {
+        int y = start / width;
+        int rowStart = y * width;
+        int left = start - rowStart;
+        int right = left;
+        int opened = 0;
+        while (left > 0 && isFillable(cells[rowStart + left - 1])) {
+            left--;
+            cells[rowStart + left] |= OPENED;
+            record((rowStart + left) << 1);
+            opened++;
+        }
+        while (right < width - 1 && isFillable(cells[rowStart + right + 1])) {
+            right++;
+            cells[rowStart + right] |= OPENED;
+            record((rowStart + right) << 1);
+            opened++;
+        }
+        fillHead = 0;
+        fillTail = 0;
+        fillMinX = left;
+        fillMinY = y;
+        fillMaxX = right;
+        fillMaxY = y;
+        addSpan(y, left, right);
+        filling = true;
+        return opened;
+    }
+
+    /**
+     * Take spans from {@link #fillQueue} and open the cells around them until about maxCells
+     * cells have been opened or the region is finished, then report the opened cells.
+     *
+     * @param maxCells About the most cells to open. Whole spans are always finished, so a few
+     *                 rows more than this may be opened.
+     * @return The number of cells that were opened.
+     */
+    private int fillSpans(int maxCells) {
+        int opened = 0;
+        while (fillHead < fillTail && opened < maxCells) {
+            int y = fillQueue[fillHead++];
+            int left = fillQueue[fillHead++];
+            int right = fillQueue[fillHead++];
+            int minX = left > 0 ? left - 1 : left;
+            int maxX = right < width - 1 ? right + 1 : right;
+            int minY = y > 0 ? y - 1 : y;
+            int maxY = y < height - 1 ? y + 1 : y;
+            fillMinX = Math.min(fillMinX, minX);
+            fillMaxX = Math.max(fillMaxX, maxX);
+            fillMinY = Math.min(fillMinY, minY);
+            fillMaxY = Math.max(fillMaxY, maxY);
+            for (int ny = minY; ny <= maxY; ny++) {
+                int rowStart = ny * width;
+                for (int x = minX; x <= maxX; x++) {
+                    int cell = cells[rowStart + x];
+                    if ((cell & (OPENED | FLAGGED)) != 0) {
+                        continue;
+                    }
+                    cells[rowStart + x] = (byte) (cell | OPENED);
+                    record((rowStart + x) << 1);
+                    opened++;
+                    if ((cell & SURROUNDING_MINES_MASK) == 0) {
+                        // Start a new span here and open all of it.
+                        int spanLeft = x;
+                        while (spanLeft > 0 && isFillable(cells[rowStart + spanLeft - 1])) {
+                            spanLeft--;
+                            cells[rowStart + spanLeft] |= OPENED;
+                            record((rowStart + spanLeft) << 1);
+                            opened++;
+                        }
+                        while (x < width - 1 && isFillable(cells[rowStart + x + 1])) {
+                            x++;
+                            cells[rowStart + x] |= OPENED;
+                            record((rowStart + x) << 1);
+                            opened++;
+                        }
+                        fillMinX = Math.min(fillMinX, spanLeft);
+                        fillMaxX = Math.max(fillMaxX, x);
+                        addSpan(ny, spanLeft, x);
+                    }
+                }
+            }
+            if (reportEachSpan) {
+                reportFill();
+            }
+        }
+        filling = fillHead < fillTail;
+        reportFill();
+        return opened;
+    }
+
+    /**
+     * Report the cells opened by the flood fill since it last reported them.
+     */
+    private void reportFill() {
+        if (fillMaxX >= 0) {
+            cellsChanged(fillMinX, fillMinY, fillMaxX, fillMaxY);
+            fillMinX = width;
+            fillMinY = height;
+            fillMaxX = -1;
+            fillMaxY = -1;
+        }
+    }
+
+    /**
+     * Stop opening a region without finishing it, for when the board is cleared.
+     */
+    private void cancelFill() {
+        filling = false;
+        fillHead = 0;
+        fillTail = 0;
+    }
+
+    /**
+     * @return Whether a cell is closed, unflagged and has no surrounding mines.
+     */
+    private static boolean isFillable(int cell) {
+        return (cell & (OPENED | FLAGGED | MINE | SURROUNDING_MINES_MASK)) == 0;
+    }
+
+    /**
+     * Add an opened span of cells with no surrounding mines to the end of {@link #fillQueue}.
+     * Spans already taken from the front are dropped to make room before the queue grows.
+     */
+    private void addSpan(int y, int left, int right) {
+        if (fillQueue == null) {
+            fillQueue = new int[3 * 64];
+        } else if (fillTail + 3 > fillQueue.length) {
+            if (fillHead >= fillQueue.length / 2) {
+                System.arraycopy(fillQueue, fillHead, fillQueue, 0, fillTail - fillHead);
+            } else {
+                int[] grown = new int[fillQueue.length * 2];
+                System.arraycopy(fillQueue, fillHead, grown, 0, fillTail - fillHead);
+                fillQueue = grown;
+            }
+            fillTail -= fillHead;
+            fillHead = 0;
+        }
+        fillQueue[fillTail++] = y;
+        fillQueue[fillTail++] = left;
+        fillQueue[fillTail++] = right;
+    }
+
+    /**
+     * Flag or unflag the cell at the specified location.
+     *
+     * @param x The x-coordinate of the cell to (un)flag.
+     * @param y The y-coordinate of the cell to (un)flag.
+     * @return Whether the cell changed.
+     */
+    public boolean toggleFlag(int x, int y) {
+        finishOpening();
+        int index = y * width + x;
+        if (isFinished() || (cells[index] & OPENED) != 0) {
+            return false;
+        }
+        cells[index] ^= FLAGGED;
+        beginMove();
+        record(index << 1 | 1);
+        endMove();
+        if ((cells[index] & FLAGGED) != 0) {
+            flaggedCells.add(index);
+        } else {
+            flaggedCells.remove(index);
+        }
+        cellsFlagged = flaggedCells.size;
+        cellsChanged(x, y, x, y);
+        return true;
+    }
+
+    /**
+     * Chord (open all cells in 3x3 box around) a given cell, if the number of
+     * flags around it matches its label.
+     *
+     * @param cellX The x-coordinate of the cell to chord.
+     * @param cellY The y-coordinate of the cell to chord.
+     * @return The number of safe cells that were opened.
+     */
+    public int chord(int cellX, int cellY) {
+        finishOpening();
+        if (isFinished() || !isOpened(cellX, cellY)) {
+            return 0;
+        }
+        int surroundingFlags = 0;
+        for (int dy = -1; dy <= 1; dy++) {
+            for (int dx = -1; dx <= 1; dx++) {
+                if (!(dx == 0 && dy == 0) && contains(cellX + dx, cellY + dy)
+                        && isFlagged(cellX + dx, cellY + dy)) {
+                    surroundingFlags++;
+                }
+            }
+        }
+
+        // If there are the right amount of flags, open the surrounding cells
+        int opened = 0;
+        if (surroundingFlags == getSurroundingMines(cellX, cellY)) {
+            beginMove();
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dx = -1; dx <= 1; dx++) {
+                    if (!(dx == 0 && dy == 0) && contains(cellX + dx, cellY + dy)) {
+                        opened += openCell(cellX + dx, cellY + dy, Integer.MAX_VALUE);
+                    }
+                }
+            }
+            endMove();
+        }
+        return opened;
+    }
+
+    /**
+     * Record every move from now on in a journal, so that it can be undone with {@link #undo()}.
+     * The journal is cleared whenever the board is reset or loaded.
+     *
+     * @param journal The journal, or null to stop recording.
+     */
+    public void setJournal(UndoJournal journal) {
+        this.journal = journal;
+        if (journal != null) {
+            journal.clear();
+        }
+    }
+
+    /**
+     * Undo the latest move in the journal: close the cells it opened and take back the flag
+     * it placed or removed. A game that the move won or lost is in play again. Only the
+     * cells the move changed are visited.
+     *
+     * @return Whether there was a move to undo.
+     */
+    public boolean undo() {
+        finishOpening();
+        if (journal == null || journal.getMoves() == 0) {
+            return false;
+        }
+        if (lost) {
+            // Hide the mines and wrong flags again.
+            revealMines();
+        }
+        int[] entries = journal.getEntries();
+        int minIndex = Integer.MAX_VALUE, maxIndex = -1;
+        int minX = width, maxX = -1;
+        for (int i = journal.getLastMoveStart(), end = journal.getLastMoveEnd(); i < end; i++) {
+            int entry = entries[i];
+            int index = entry >>> 1;
+            if ((entry & 1) != 0) {
+                cells[index] ^= FLAGGED;
+                if ((cells[index] & FLAGGED) != 0) {
+                    flaggedCells.add(index);
+                } else {
+                    flaggedCells.remove(index);
+                }
+            } else {
+                cells[index] &= ~OPENED;
+                if ((cells[index] & MINE) == 0) {
+                    cellsOpened--;
+                }
+            }
+            int x = index % width;
+            minIndex = Math.min(minIndex, index);
+            maxIndex = Math.max(maxIndex, index);
+            minX = Math.min(minX, x);
+            maxX = Math.max(maxX, x);
+        }
+        journal.removeLastMove();
+        cellsFlagged = flaggedCells.size;
+        // No move can follow the end of a game, so the game was in play before this one.
+        won = false;
+        lost = false;
+        cellsChanged(minX, minIndex / width, maxX, maxIndex / width);
+        return true;
+    }
+
+    private void beginMove() {
+        if (journal != null) {
+            journal.beginMove();
+        }
+    }
+
+    private void record(int entry) {
+        if (journal != null) {
+            journal.add(entry);
+        }
+    }
+
+    private void endMove() {
+        if (journal != null) {
+            journal.endMove();
+        }
+    }
+
+    /**
+     * Copy every cell into dest, for saving the game. A region being opened gradually is
+     * copied as far as it has been opened, since finishing it here could end the game behind
+     * the back of whoever is playing it.
+     *
+     * @param dest An array of at least width * height cells.
+     */
+    void copyCells(byte[] dest) {
+        System.arraycopy(cells, 0, dest, 0, width * height);
+    }
+
+    /**
+     * Load a saved game. The mine, opened and flagged bits of every cell are taken from
+     * states, and the labels and counters are worked out again from them.
+     *
+     * @param states An array of at least width * height cells, in the layout of {@link #getCell(int, int)}.
+     */
+    void restoreCells(byte[] states) {
+        cancelFill();
+        Arrays.fill(mineRows, 0);
+        flaggedCells.clear();
+        cellsOpened = 0;
+        int minesOpened = 0;
+        for (int y = 0, index = 0; y < height; y++) {
+            int row = y * rowWords;
+            for (int x = 0; x < width; x++, index++) {
+                int cell = states[index] & (MINE | OPENED | FLAGGED);
+                cells[index] = (byte) cell;
+                int mine = cell >>> 4 & 1;
+                int opened = cell >>> 5 & 1;
+                mineRows[row + (x >>> 6)] |= (long) mine << (x & 63);
+                cellsOpened += opened;
+                minesOpened += mine & opened;
+                if ((cell & FLAGGED) != 0) {
+                    flaggedCells.add(index);
+                }
+            }
+        }
+        cellsOpened -= minesOpened;
+        cellsFlagged = flaggedCells.size;
+        lost = minesOpened > 0;
+        indexMines();
+        if (journal != null) {
+            journal.clear();
+        }
+        generateCellLabels();
+        generated = true;
+        won = !lost && cellsOpened == width * height - mines;
+        cellsChanged(0, 0, width - 1, height - 1);
+    }
+
+    /**
+     * Clear every cell and counter so a new game can be played on the same board.
+     */
+    public void reset() {
+        cancelFill();
+        // A resized board may use only the start of its storage.
+        Arrays.fill(cells, 0, width * height, (byte) 0);
+        Arrays.fill(mineRows, 0, height * rowWords, 0);
+        // Every mine index is written again by the next generate, so only the flags need clearing.
+        flaggedCells.clear();
+        if (journal != null) {
+            journal.clear();
+        }
+        cellsOpened = 0;
+        cellsFlagged = 0;
+        generated = false;
+        won = false;
+        lost = false;
+        cellsChanged(0, 0, width - 1, height - 1);
+    }
+
+    /**
+     * Add a listener to be told when cells on the board change.
+     */
+    public void addListener(BoardListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(BoardListener listener) {
+        listeners.removeValue(listener, true);
+    }
+
+    private void cellsChanged(int minX, int minY, int maxX, int maxY) {
+        for (int i = 0; i < listeners.size; i++) {
+            listeners.get(i).cellsChanged(minX, minY, maxX, maxY);
+        }
+    }
+
+    /**
+     * @return Whether (x, y) is a cell on the board.
+     */
+    public boolean contains(int x, int y) {
+        return x >= 0 && y >= 0 && x < width && y < height;
+    }
+
+    /**
+     * @return The packed state bits of the cell at (x, y).
+     */
+    public int getCell(int x, int y) {
+        return cells[y * width + x];
+    }
+
+    public boolean isMine(int x, int y) {
+        return (cells[y * width + x] & MINE) != 0;
+    }
+
+    public boolean isOpened(int x, int y) {
+        return (cells[y * width + x] & OPENED) != 0;
+    }
+
+    public boolean isFlagged(int x, int y) {
+        return (cells[y * width + x] & FLAGGED) != 0;
+    }
+
+    public int getSurroundingMines(int x, int y) {
+        return cells[y * width + x] & SURROUNDING_MINES_MASK;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getMines() {
+        return mines;
+    }
+
+    public int getCellsOpened() {
+        return cellsOpened;
+    }
+
+    public int getCellsFlagged() {
+        return cellsFlagged;
+    }
+
+    /**
+     * @return Whether mines have been placed on the board.
+     */
+    public boolean isGenerated() {
+        return generated;
+    }
+
+    public boolean isWon() {
+        return won;
+    }
+
+    public boolean isLost() {
+        return lost;
+    }
+
+    /**
+     * @return Whether the game on this board has been won or lost.
+     */
+    public boolean isFinished() {
+        return won || lost;
+    }
+
+}
@@ -0,0 +1,19 @@
+package ga.kylemclean.minesweeper.game;
+
+/**
+ * Told when the state of cells on a {@link Board} changes.
+ */
+public interface BoardListener {
+
+    /**
+     * Called after cells have been opened, flagged, unflagged or cleared. Every changed cell
+     * is inside the given rectangle, but not every cell in it has necessarily changed.
+     *
+     * @param minX The x-coordinate of the leftmost column that may have changed.
+     * @param minY The y-coordinate of the bottom row that may have changed.
+     * @param maxX The x-coordinate of the rightmost column that may have changed.
+     * @param maxY The y-coordinate of the top row that may have changed.
+     */
+    void cellsChanged(int minX, int minY, int maxX, int maxY);
+
+}
@@ -0,0 +1,448 @@
+package ga.kylemclean.minesweeper.game;
+
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.LongMap;
+
+/**
+ * A board with no edges, for the endless mode.
+ * <p>
+ * Whether a cell is a mine is a hash of the seed and the cell's coordinates, so the mine status
+ * and label of any cell can be worked out on its own. The only thing stored is the state of the
+ * cells the player has seen, in a sparse map of {@link #CHUNK_SIZE}x{@link #CHUNK_SIZE} chunks.
+ * A chunk is created when one of its cells is viewed or changed and holds one byte per cell with
+ * the same bits as {@link Board}. Chunks far from the view can be compacted with
+ * {@link #compactChunksOutside(int, int, int, int)}, which keeps only their opened and flagged
+ * bits, or drops them entirely if the player never touched them. Memory use follows the explored
+ * area rather than the size of the world.
+ * <p>
+ * Like on {@link Board}, there are no mines in the 3x3 space around the first cell opened.
+ */
+public class EndlessBoard {
+
+    /** The width and height of a chunk in cells. */
+    public static final int CHUNK_SIZE = 32;
+    private static final int CHUNK_SHIFT = 5;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    /** The default chance of a cell being a mine. */
+    public static final float DEFAULT_DENSITY = 0.18f;
+    /**
+     * The lowest allowed chance of a cell being a mine. Below about 10% the cells with no
+     * surrounding mines join up into regions with no end, which a single click would try to open.
+     */
+    public static final float MIN_DENSITY = 0.12f;
+    /** The highest allowed chance of a cell being a mine. */
+    public static final float MAX_DENSITY = 0.5f;
+
+    private long seed;
+    /** A cell is a mine if the top 53 bits of its hash are below this. */
+    private long mineThreshold;
+
+    private LongMap<Chunk> chunks;
+    /** The last chunk looked up, to skip the map for neighbouring cells. */
+    private Chunk lastChunk;
+    private int fullChunks;
+
+    private boolean started;
+    private int startX, startY;
+    private boolean lost;
+    private long cellsOpened;
+    private int cellsFlagged;
+
+    /** Work stack of cell coordinate pairs reused when opening regions. */
+    private IntArray fillStack;
+    /** Mine bits for a chunk and a one cell border around it, reused when labelling chunks. */
+    private long[] labelRows;
+
+    /**
+     * Create an endless board.
+     *
+     * @param seed    The seed that the mines are derived from.
+     * @param density The chance of each cell being a mine.
+     */
+    public EndlessBoard(long seed, float density) {
+        if (density < MIN_DENSITY || density > MAX_DENSITY) {
+            throw new IllegalArgumentException("Mine density must be between " + MIN_DENSITY
+                    + " and " + MAX_DENSITY + ": " + density);
+        }
+        mineThreshold = (long) (density * (1L << 53));
+        chunks = new LongMap<Chunk>();
+        fillStack = new IntArray();
+        labelRows = new long[CHUNK_SIZE + 2];
+        reset(seed);
+    }
+
+    /**
+     * Forget every cell and start a new world.
+     *
+     * @param seed The seed that the new world's mines are derived from.
+     */
+    public void reset(long seed) {
+        this.seed = seed;
+        chunks.clear();
+        lastChunk = null;
+        fullChunks = 0;
+        started = false;
+        lost = false;
+        cellsOpened = 0;
+        cellsFlagged = 0;
+    }
+
+    /**
+     * Whether the cell at (x, y) is a mine. Before the first cell has been opened, there are
+     * no mines yet and this is always false.
+     */
+    public boolean isMine(int x, int y) {
+        if (!started || (Math.abs(x - startX) <= 1 && Math.abs(y - startY) <= 1)) {
+            return false;
+        }
+        long hash = SplitMix64.mix(seed + ((((long) x) << 32) | (y & 0xFFFFFFFFL)) * SplitMix64.GOLDEN_GAMMA);
+        return (hash >>> 11) < mineThreshold;
+    }
+
+    /**
+     * Get the state bits of the cell at (x, y), in the same form as {@link Board#getCell(int, int)}.
+     * This creates the cell's chunk if the game has started.
+     */
+    public int getCell(int x, int y) {
+        Chunk chunk = getChunk(x >> CHUNK_SHIFT, y >> CHUNK_SHIFT, started);
+        if (chunk == null) {
+            return 0;
+        }
+        return chunk.cells[((y & CHUNK_MASK) << CHUNK_SHIFT) | (x & CHUNK_MASK)];
+    }
+
+    /**
+     * Open the cell at the specified location. If the cell has no surrounding mines,
+     * open all surrounding cells as well. The first cell opened starts the game.
+     *
+     * @param x The x-coordinate of the cell to open.
+     * @param y The y-coordinate of the cell to open.
+     * @return The number of safe cells that were opened.
+     */
+    public int open(int x, int y) {
+        if (lost) {
+            return 0;
+        }
+        if (!started) {
+            start(x, y);
+        }
+        return openCell(x, y);
+    }
+
+    private int openCell(int x, int y) {
+        Chunk chunk = getChunk(x >> CHUNK_SHIFT, y >> CHUNK_SHIFT, true);
+        int index = ((y & CHUNK_MASK) << CHUNK_SHIFT) | (x & CHUNK_MASK);
+        int cell = chunk.cells[index];
+        if ((cell & (Board.OPENED | Board.FLAGGED)) != 0) {
+            return 0;
+        }
+        chunk.cells[index] = (byte) (cell | Board.OPENED);
+        if ((cell & Board.MINE) != 0) {
+            lost = true;
+            return 0;
+        }
+        int opened = 1;
+        if ((cell & Board.SURROUNDING_MINES_MASK) == 0) {
+            // There are no surrounding mines
+            IntArray stack = fillStack;
+            stack.clear();
+            stack.add(x);
+            stack.add(y);
+            while (stack.size > 0) {
+                int cy = stack.pop();
+                int cx = stack.pop();
+                for (int ny = cy - 1; ny <= cy + 1; ny++) {
+                    for (int nx = cx - 1; nx <= cx + 1; nx++) {
+                        Chunk neighbourChunk = getChunk(nx >> CHUNK_SHIFT, ny >> CHUNK_SHIFT, true);
+                        int neighbour = ((ny & CHUNK_MASK) << CHUNK_SHIFT) | (nx & CHUNK_MASK);
+                        int neighbourCell = neighbourChunk.cells[neighbour];
+                        if ((neighbourCell & (Board.OPENED | Board.FLAGGED)) != 0) {
+                            continue;
+                        }
+                        neighbourChunk.cells[neighbour] = (byte) (neighbourCell | Board.OPENED);
+                        opened++;
+                        if ((neighbourCell & Board.SURROUNDING_MINES_MASK) == 0) {
+                            stack.add(nx);
+                            stack.add(ny);
+                        }
+                    }
+                }
+            }
+        }
+        cellsOpened += opened;
+        return opened;
+    }
+
+    /**
+     * Flag or unflag the cell at the specified location.
+     *
+     * @param x The x-coordinate of the cell to (un)flag.
+     * @param y The y-coordinate of the cell to (un)flag.
+     * @return Whether the cell changed.
+     */
+    public boolean toggleFlag(int x, int y) {
+        Chunk chunk = getChunk(x >> CHUNK_SHIFT, y >> CHUNK_SHIFT, true);
+        int index = ((y & CHUNK_MASK) << CHUNK_SHIFT) | (x & CHUNK_MASK);
+        if (lost || (chunk.cells[index] & Board.OPENED) != 0) {
+            return false;
+        }
+        chunk.cells[index] ^= Board.FLAGGED;
+        cellsFlagged += (chunk.cells[index] & Board.FLAGGED) != 0 ? 1 : -1;
+        return true;
+    }
+
+    /**
+     * Chord (open all cells in 3x3 box around) a given cell, if the number of
+     * flags around it matches its label.
+     *
+     * @param cellX The x-coordinate of the cell to chord.
+     * @param cellY The y-coordinate of the cell to chord.
+     * @return The number of safe cells that were opened.
+     */
+    public int chord(int cellX, int cellY) {
+        int cell = getCell(cellX, cellY);
+        if (lost || (cell & Board.OPENED) == 0) {
+            return 0;
+        }
+        int surroundingFlags = 0;
+        for (int dy = -1; dy <= 1; dy++) {
+            for (int dx = -1; dx <= 1; dx++) {
+                if (!(dx == 0 && dy == 0) && (getCell(cellX + dx, cellY + dy) & Board.FLAGGED) != 0) {
+                    surroundingFlags++;
+                }
+            }
+        }
+
+        // If there are the right amount of flags, open the surrounding cells
+        int opened = 0;
+        if (surroundingFlags == (cell & Board.SURROUNDING_MINES_MASK)) {
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dx = -1; dx <= 1; dx++) {
+                    if (!(dx == 0 && dy == 0)) {
+                        opened += openCell(cellX + dx, cellY + dy);
+                    }
+                }
+            }
+        }
+        return opened;
+    }
+
+    /**
+     * Compact every chunk that doesn't overlap a rectangle of cells, which is usually the view
+     * plus a margin. Compacted chunks keep only their opened and flagged cells as bits, and
+     * chunks with neither are dropped. They are expanded again the next time they are used.
+     *
+     * @param minX The x-coordinate of the leftmost column to keep.
+     * @param minY The y-coordinate of the bottom row to keep.
+     * @param maxX The x-coordinate of the rightmost column to keep.
+     * @param maxY The y-coordinate of the top row to keep.
+     */
+    public void compactChunksOutside(int minX, int minY, int maxX, int maxY) {
+        int minChunkX = minX >> CHUNK_SHIFT;
+        int minChunkY = minY >> CHUNK_SHIFT;
+        int maxChunkX = maxX >> CHUNK_SHIFT;
+        int maxChunkY = maxY >> CHUNK_SHIFT;
+        if (fullChunks <= (maxChunkX - minChunkX + 1) * (maxChunkY - minChunkY + 1)) {
+            // Everything that is expanded could be in view, so don't bother looking.
+            return;
+        }
+        LongMap.Values<Chunk> values = chunks.values();
+        while (values.hasNext()) {
+            Chunk chunk = values.next();
+            if (chunk.cells == null || (chunk.chunkX >= minChunkX && chunk.chunkX <= maxChunkX
+                    && chunk.chunkY >= minChunkY && chunk.chunkY <= maxChunkY)) {
+                continue;
+            }
+            if (!chunk.compact()) {
+                values.remove();
+            }
+            if (chunk == lastChunk) {
+                lastChunk = null;
+            }
+            fullChunks--;
+        }
+    }
+
+    /**
+     * Get a chunk, creating it or expanding it from its compact form if needed. Once the game
+     * has started, the chunk's mine and label bits are filled in.
+     *
+     * @param create Whether to create the chunk if it doesn't exist yet.
+     * @return The chunk, or null if it doesn't exist and create is false.
+     */
+    private Chunk getChunk(int chunkX, int chunkY, boolean create) {
+        Chunk chunk = lastChunk;
+        if (chunk == null || chunk.chunkX != chunkX || chunk.chunkY != chunkY) {
+            long key = (((long) chunkX) << 32) | (chunkY & 0xFFFFFFFFL);
+            chunk = chunks.get(key);
+            if (chunk == null) {
+                if (!create) {
+                    return null;
+                }
+                chunk = new Chunk(chunkX, chunkY);
+                chunks.put(key, chunk);
+                fullChunks++;
+            }
+            lastChunk = chunk;
+        }
+        if (chunk.cells == null) {
+            chunk.expand();
+            fullChunks++;
+        }
+        if (started && !chunk.labelled) {
+            label(chunk);
+        }
+        return chunk;
+    }
+
+    /**
+     * Start the game with the first cell opened at (x, y). Chunks created before this only
+     * hold flags, and are labelled from now on as they are used.
+     */
+    private void start(int x, int y) {
+        started = true;
+        startX = x;
+        startY = y;
+        lastChunk = null;
+    }
+
+    /**
+     * Fill in the mine and label bits of a chunk's cells.
+     */
+    private void label(Chunk chunk) {
+        int originX = chunk.chunkX << CHUNK_SHIFT;
+        int originY = chunk.chunkY << CHUNK_SHIFT;
+        // Bit (x + 1) of row (y + 1) is set if (originX + x, originY + y) is a mine.
+        long[] rows = labelRows;
+        for (int y = -1; y <= CHUNK_SIZE; y++) {
+            long row = 0;
+            for (int x = -1; x <= CHUNK_SIZE; x++) {
+                if (isMine(originX + x, originY + y)) {
+                    row |= 1L << (x + 1);
+                }
+            }
+            rows[y + 1] = row;
+        }
+        byte[] cells = chunk.cells;
+        for (int y = 0; y < CHUNK_SIZE; y++) {
+            for (int x = 0; x < CHUNK_SIZE; x++) {
+                int index = (y << CHUNK_SHIFT) | x;
+                int state = cells[index] & (Board.OPENED | Board.FLAGGED);
+                if ((rows[y + 1] & (1L << (x + 1))) != 0) {
+                    state |= Board.MINE;
+                } else {
+                    // The 3x3 bits around (x + 1, y + 1) are bits x to x + 2 of rows y to y + 2.
+                    state |= Long.bitCount((rows[y] >>> x) & 7)
+                            + Long.bitCount((rows[y + 1] >>> x) & 7)
+                            + Long.bitCount((rows[y + 2] >>> x) & 7);
+                }
+                cells[index] = (byte) state;
+            }
+        }
+        chunk.labelled = true;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @return Whether the first cell has been opened.
+     */
+    public boolean isStarted() {
+        return started;
+    }
+
+    public boolean isLost() {
+        return lost;
+    }
+
+    public long getCellsOpened() {
+        return cellsOpened;
+    }
+
+    public int getCellsFlagged() {
+        return cellsFlagged;
+    }
+
+    /**
+     * @return The number of chunks stored, expanded or compact.
+     */
+    public int getChunkCount() {
+        return chunks.size;
+    }
+
+    /**
+     * @return The number of chunks stored with one byte per cell.
+     */
+    public int getExpandedChunkCount() {
+        return fullChunks;
+    }
+
+    /**
+     * A chunk of cells, which is either expanded, with one byte of state bits per cell, or
+     * compact, with only a bit set for each opened and flagged cell.
+     */
+    private static class Chunk {
+
+        private static final int WORDS = CHUNK_SIZE * CHUNK_SIZE / 64;
+
+        final int chunkX, chunkY;
+        /** The state bits of each cell, or null while compact. */
+        byte[] cells;
+        /** Whether the mine and label bits in cells have been filled in. */
+        boolean labelled;
+        /** The opened and flagged cells while compact, or null while expanded. */
+        long[] opened, flagged;
+
+        Chunk(int chunkX, int chunkY) {
+            this.chunkX = chunkX;
+            this.chunkY = chunkY;
+            cells = new byte[CHUNK_SIZE * CHUNK_SIZE];
+        }
+
+        /**
+         * Switch to the compact form.
+         *
+         * @return Whether any cell is opened or flagged. If not, the chunk can be dropped.
+         */
+        boolean compact() {
+            long[] opened = new long[WORDS];
+            long[] flagged = new long[WORDS];
+            boolean touched = false;
+            for (int i = 0; i < cells.length; i++) {
+                if ((cells[i] & Board.OPENED) != 0) {
+                    opened[i >>> 6] |= 1L << i;
+                    touched = true;
+                } else if ((cells[i] & Board.FLAGGED) != 0) {
+                    flagged[i >>> 6] |= 1L << i;
+                    touched = true;
+                }
+            }
+            this.opened = opened;
+            this.flagged = flagged;
+            cells = null;
+            labelled = false;
+            return touched;
+        }
+
+        /**
+         * Switch to the expanded form. The mine and label bits still need filling in.
+         */
+        void expand() {
+            cells = new byte[CHUNK_SIZE * CHUNK_SIZE];
+            for (int i = 0; i < cells.length; i++) {
+                if ((opened[i >>> 6] & (1L << i)) != 0) {
+                    cells[i] = Board.OPENED;
+                } else if ((flagged[i >>> 6] & (1L << i)) != 0) {
+                    cells[i] = Board.FLAGGED;
+                }
+            }
+            opened = null;
+            flagged = null;
+        }
+
+    }
+
+}
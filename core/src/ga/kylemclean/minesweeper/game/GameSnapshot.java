@@ -0,0 +1,265 @@
+package ga.kylemclean.minesweeper.game;
+
+import com.badlogic.gdx.Files.FileType;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * A saved game in progress, so that it can be resumed after the app has been closed.
+ * <p>
+ * The file starts with a header: the magic number {@link #MAGIC}, a version byte, the width,
+ * height and mines, the seed, a flags byte, the game time in milliseconds and the opened and
+ * flagged cell counters. The cells follow packed two to a byte, four bits each holding the
+ * {@link Board#MINE}, {@link Board#OPENED} and {@link Board#FLAGGED} bits shifted down by four.
+ * Labels are not saved, as they are worked out again from the mines on loading.
+ * <p>
+ * Saving is split in two so that the render thread only pays for copying the cells:
+ * {@link #capture(Board, long, boolean, long)} takes the copy, and {@link #write(FileHandle)}
+ * packs and writes it from any thread. Loading is lazy too: {@link #readHeader(FileHandle)}
+ * reads only the header, for showing what can be resumed, and the cells are read by
+ * {@link #restore(FileHandle, Board)} when the game is actually resumed.
+ */
+public class GameSnapshot {
+
+    /** The first four bytes of a snapshot, "MSSN". */
+    public static final int MAGIC = 0x4D53534E;
+    public static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 4 + 1 + 4 + 4 + 4 + 8 + 1 + 8 + 4 + 4;
+    /** Flags in the flags byte. */
+    private static final int NO_GUESS = 1;
+
+    private int width, height, mines;
+    private long seed;
+    private boolean noGuess;
+    private long time;
+    private int cellsOpened, cellsFlagged;
+
+    /** The cells, one to a byte as the board keeps them. Kept between saves. */
+    private byte[] cells;
+    /** The file contents being written. Kept between saves. */
+    private byte[] data;
+
+    /**
+     * Copy the state of a game. This is all that needs to happen on the thread that owns the
+     * board, and it doesn't allocate unless the board is bigger than the last one.
+     *
+     * @param board   The board, which must have been generated.
+     * @param seed    The seed the board was generated from.
+     * @param noGuess Whether the board was generated to be solvable without guessing.
+     * @param time    The game time in milliseconds.
+     */
+    public void capture(Board board, long seed, boolean noGuess, long time) {
+        width = board.getWidth();
+        height = board.getHeight();
+        mines = board.getMines();
+        this.seed = seed;
+        this.noGuess = noGuess;
+        this.time = time;
+        cellsOpened = board.getCellsOpened();
+        cellsFlagged = board.getCellsFlagged();
+        if (cells == null || cells.length < width * height) {
+            cells = new byte[width * height];
+        }
+        board.copyCells(cells);
+    }
+
+    /**
+     * Write the last captured game to a file. The file is written under another name and
+     * then renamed over the previous save, so a save cut short leaves the previous one intact.
+     * Where the rename fails, as it can on Windows when the file exists, it is copied over
+     * the previous save instead, which is not safe from being cut short.
+     *
+     * @param file The file to save to.
+     */
+    public void write(FileHandle file) {
+        int count = width * height;
+        int length = HEADER_SIZE + (count + 1) / 2;
+        if (data == null || data.length < length) {
+            data = new byte[length];
+        }
+        ByteBuffer header = ByteBuffer.wrap(data);
+        header.putInt(MAGIC);
+        header.put((byte) VERSION);
+        header.putInt(width);
+        header.putInt(height);
+        header.putInt(mines);
+        header.putLong(seed);
+        header.put((byte) (noGuess ? NO_GUESS : 0));
+        header.putLong(time);
+        header.putInt(cellsOpened);
+        header.putInt(cellsFlagged);
+
+        byte[] cells = this.cells;
+        int j = HEADER_SIZE;
+        int i = 0;
+        for (; i + 1 < count; i += 2) {
+            data[j++] = (byte) ((cells[i] >> 4 & 0x07) | (cells[i + 1] & 0x70));
+        }
+        if (i < count) {
+            data[j] = (byte) (cells[i] >> 4 & 0x07);
+        }
+
+        FileHandle temp = file.sibling(file.name() + ".tmp");
+        temp.writeBytes(data, 0, length, false);
+        // FileHandle.moveTo copies the file and deletes the original, so rename it directly.
+        FileType type = file.type();
+        boolean renamed = (type == FileType.Local || type == FileType.External || type == FileType.Absolute)
+                && temp.file().renameTo(file.file());
+        if (!renamed) {
+            temp.moveTo(file);
+        }
+    }
+
+    /**
+     * Read the header of a saved game, without its cells.
+     *
+     * @param file The file the game was saved to.
+     * @return The saved game, or null if there is none or it can't be read.
+     */
+    public static GameSnapshot readHeader(FileHandle file) {
+        if (!file.exists()) {
+            return null;
+        }
+        byte[] bytes = new byte[HEADER_SIZE];
+        InputStream input = null;
+        try {
+            input = file.read();
+            int read = 0;
+            while (read < HEADER_SIZE) {
+                int n = input.read(bytes, read, HEADER_SIZE - read);
+                if (n < 0) {
+                    return null;
+                }
+                read += n;
+            }
+        } catch (IOException e) {
+            return null;
+        } catch (GdxRuntimeException e) {
+            return null;
+        } finally {
+            StreamUtils.closeQuietly(input);
+        }
+
+        ByteBuffer header = ByteBuffer.wrap(bytes);
+        if (header.getInt() != MAGIC || header.get() != VERSION) {
+            return null;
+        }
+        GameSnapshot snapshot = new GameSnapshot();
+        snapshot.width = header.getInt();
+        snapshot.height = header.getInt();
+        snapshot.mines = header.getInt();
+        snapshot.seed = header.getLong();
+        snapshot.noGuess = (header.get() & NO_GUESS) != 0;
+        snapshot.time = header.getLong();
+        snapshot.cellsOpened = header.getInt();
+        snapshot.cellsFlagged = header.getInt();
+        if (snapshot.width <= 0 || snapshot.height <= 0 || snapshot.mines < 0
+                || (long) snapshot.width * snapshot.height > Integer.MAX_VALUE) {
+            return null;
+        }
+        return snapshot;
+    }
+
+    /**
+     * Load the cells of a saved game onto a board.
+     *
+     * @param file  The file the game was saved to, whose header this was read from.
+     * @param board An empty board of the saved game's size and mines.
+     * @return Whether the game was loaded. If not, the board is left as it was. A save whose
+     * cells don't hold as many mines as its header says, or don't add up to its counters, is
+     * damaged and isn't loaded.
+     */
+    public boolean restore(FileHandle file, Board board) {
+        if (board.getWidth() != width || board.getHeight() != height || board.getMines() != mines) {
+            return false;
+        }
+        int count = width * height;
+        byte[] data;
+        try {
+            data = file.readBytes();
+        } catch (GdxRuntimeException e) {
+            return false;
+        }
+        if (data.length != HEADER_SIZE + (count + 1) / 2) {
+            return false;
+        }
+
+        if (cells == null || cells.length < count) {
+            cells = new byte[count];
+        }
+        byte[] cells = this.cells;
+        int j = HEADER_SIZE;
+        int i = 0;
+        for (; i + 1 < count; i += 2) {
+            int packed = data[j++];
+            cells[i] = (byte) ((packed & 0x07) << 4);
+            cells[i + 1] = (byte) (packed & 0x70);
+        }
+        if (i < count) {
+            cells[i] = (byte) ((data[j] & 0x07) << 4);
+        }
+
+        // Check the cells before the board is touched, as it can't be put back afterwards.
+        int minesFound = 0;
+        int opened = 0;
+        int flagged = 0;
+        for (i = 0; i < count; i++) {
+            int cell = cells[i];
+            if ((cell & Board.MINE) != 0) {
+                minesFound++;
+            } else if ((cell & Board.OPENED) != 0) {
+                opened++;
+            }
+            if ((cell & Board.FLAGGED) != 0) {
+                flagged++;
+            }
+        }
+        if (minesFound != mines || opened != cellsOpened || flagged != cellsFlagged) {
+            return false;
+        }
+        board.restoreCells(cells);
+        return true;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getMines() {
+        return mines;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public boolean isNoGuess() {
+        return noGuess;
+    }
+
+    /**
+     * @return The game time in milliseconds when the game was saved.
+     */
+    public long getTime() {
+        return time;
+    }
+
+    public int getCellsOpened() {
+        return cellsOpened;
+    }
+
+    public int getCellsFlagged() {
+        return cellsFlagged;
+    }
+
+}
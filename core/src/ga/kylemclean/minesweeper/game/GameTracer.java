@@ -0,0 +1,65 @@
+package ga.kylemclean.minesweeper.game;
+
+/**
+ * Receives the game operations that were just timed, so a platform can forward them to its
+ * profiler, as the desktop launcher does to Java Flight Recorder.
+ * <p>
+ * No tracer is installed by default. Traced code then only reads {@link #get()} and finds
+ * it null, so tracing costs nothing unless it was asked for. A traced operation looks like:
+ * <pre>
+ * GameTracer tracer = GameTracer.get();
+ * Object event = tracer != null ? tracer.begin(GameTracer.OPEN_CELL) : null;
+ * // ... the operation ...
+ * if (event != null) {
+ *     tracer.end(event, board, cellsOpened);
+ * }
+ * </pre>
+ */
+public abstract class GameTracer {
+
+    /** Handling a tap or click released on the board. */
+    public static final int TOUCH_UP = 0;
+    /** Opening a cell, up to the first part of a large empty region. */
+    public static final int OPEN_CELL = 1;
+    /** Opening the neighbours of a satisfied cell. */
+    public static final int CHORD_CELL = 2;
+    /** Placing the mines of a new board. */
+    public static final int GENERATE_MINES = 3;
+    /** Counting the mines around every cell. */
+    public static final int GENERATE_CELL_LABELS = 4;
+
+    private static volatile GameTracer tracer;
+
+    /**
+     * @return The installed tracer, or null if operations aren't being traced.
+     */
+    public static GameTracer get() {
+        return tracer;
+    }
+
+    /**
+     * @param tracer The tracer to send operations to, or null to stop tracing.
+     */
+    public static void set(GameTracer tracer) {
+        GameTracer.tracer = tracer;
+    }
+
+    /**
+     * Start timing an operation.
+     *
+     * @param operation The operation, one of the constants of this class.
+     * @return The event to pass to {@link #end(Object, Board, int)}, or null if this
+     * operation isn't wanted right now.
+     */
+    public abstract Object begin(int operation);
+
+    /**
+     * Finish timing an operation.
+     *
+     * @param event       What {@link #begin(int)} returned.
+     * @param board       The board the operation was on.
+     * @param cellsOpened The number of cells the operation opened.
+     */
+    public abstract void end(Object event, Board board, int cellsOpened);
+
+}
@@ -0,0 +1,238 @@
+package ga.kylemclean.minesweeper.game;
+
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.TimeUtils;
+import com.badlogic.gdx.utils.async.AsyncExecutor;
+import com.badlogic.gdx.utils.async.AsyncTask;
+
+/**
+ * Searches for boards that can be solved from the first click without guessing, in the
+ * background on every core.
+ * <p>
+ * Each attempt places mines with a {@link SplitMix64} seeded from the attempt number, opens
+ * the first cell and lets a {@link SolverStrategy} that never guesses play until it wins or
+ * gets stuck. Attempts run in parallel, one loop per thread, and the first board the solver
+ * wins is kept as a seed, so the game board is rebuilt exactly with
+ * {@code board.generate(x, y, new SplitMix64(seed))}. The first attempt uses the base seed
+ * itself, so a seed that was found can be searched for again.
+ * <p>
+ * The attempts run on their own threads rather than the {@link Workers} pool, since labelling
+ * a large candidate board waits on the {@link Workers} pool itself.
+ */
+public class NoGuessGenerator implements Disposable {
+
+    /** The number of attempts after which the search gives up. */
+    public static final int MAX_ATTEMPTS = 1000000;
+
+    private final int width, height, mines;
+    private final AsyncExecutor executor;
+
+    private int initialX, initialY;
+    private long baseSeed;
+    private long startTime, endTime;
+
+    /** Counts calls to {@link #start(int, int, long)}, so that attempts from older searches are ignored. */
+    private volatile int search;
+    /** The number of the next attempt to hand out. */
+    private int nextAttempt;
+    private int attemptsFinished;
+    /** The largest fraction of safe cells the solver opened in any attempt. */
+    private float bestProgress;
+    private volatile boolean running, found;
+    private long foundSeed;
+
+    /**
+     * Create a generator for boards of one size.
+     *
+     * @param width  The width of the board in cells.
+     * @param height The height of the board in cells.
+     * @param mines  The number of mines on the board.
+     */
+    public NoGuessGenerator(int width, int height, int mines) {
+        this.width = width;
+        this.height = height;
+        this.mines = mines;
+        executor = new AsyncExecutor(Workers.THREADS);
+    }
+
+    /**
+     * Start searching for a board that can be solved without guessing from a first click,
+     * cancelling any search already running.
+     *
+     * @param initialX The x position on the board of the first cell the user clicked.
+     * @param initialY The y position on the board of the first cell the user clicked.
+     * @param baseSeed The seed of the first attempt, which the other attempt seeds are derived from.
+     */
+    public synchronized void start(int initialX, int initialY, long baseSeed) {
+        cancel();
+        this.initialX = initialX;
+        this.initialY = initialY;
+        this.baseSeed = baseSeed;
+        nextAttempt = 0;
+        attemptsFinished = 0;
+        bestProgress = 0;
+        found = false;
+        running = true;
+        search++;
+        startTime = TimeUtils.nanoTime();
+        endTime = 0;
+        for (int i = 0; i < Workers.THREADS; i++) {
+            executor.submit(new Attempts(search));
+        }
+    }
+
+    /**
+     * Stop the search. Attempts already running finish, but no board is found afterwards.
+     */
+    public synchronized void cancel() {
+        if (running) {
+            running = false;
+            endTime = TimeUtils.nanoTime();
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getMines() {
+        return mines;
+    }
+
+    /**
+     * @return Whether the search is still running.
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * @return Whether a board has been found.
+     */
+    public boolean isFound() {
+        return found;
+    }
+
+    /**
+     * @return The seed of the board that was found, to pass to
+     * {@link Board#generate(int, int, java.util.Random)} in a {@link SplitMix64}.
+     */
+    public synchronized long getSeed() {
+        return foundSeed;
+    }
+
+    /**
+     * @return The number of candidate boards tried so far.
+     */
+    public synchronized int getAttempts() {
+        return attemptsFinished;
+    }
+
+    /**
+     * @return The largest fraction of safe cells the solver has opened on any candidate so
+     * far, which reaches 1 when a board is found.
+     */
+    public synchronized float getProgress() {
+        return bestProgress;
+    }
+
+    /**
+     * @return The number of candidate boards tried per second per core in the current or
+     * last search.
+     */
+    public synchronized float getBoardsPerSecondPerCore() {
+        long end = endTime != 0 ? endTime : TimeUtils.nanoTime();
+        float seconds = (end - startTime) / 1000000000f;
+        return seconds > 0 ? attemptsFinished / seconds / Workers.THREADS : 0;
+    }
+
+    /**
+     * Hand out the number of the next attempt.
+     *
+     * @param search The search the attempt is for.
+     * @return The attempt number, or -1 if that search has stopped.
+     */
+    private synchronized int claimAttempt(int search) {
+        if (search != this.search || !running || nextAttempt >= MAX_ATTEMPTS) {
+            return -1;
+        }
+        return nextAttempt++;
+    }
+
+    /**
+     * Record the result of an attempt, keeping the first board that was solved.
+     */
+    private synchronized void finishAttempt(int search, long seed, float progress, boolean solved) {
+        if (search != this.search || !running) {
+            return;
+        }
+        attemptsFinished++;
+        bestProgress = Math.max(bestProgress, progress);
+        if (solved) {
+            foundSeed = seed;
+            found = true;
+            running = false;
+            endTime = TimeUtils.nanoTime();
+        } else if (attemptsFinished >= MAX_ATTEMPTS) {
+            running = false;
+            endTime = TimeUtils.nanoTime();
+        }
+    }
+
+    /**
+     * Try whether the board from a seed can be solved without guessing.
+     *
+     * @return The fraction of safe cells the solver opened, which is 1 if it won.
+     */
+    private float attempt(Board board, SolverStrategy strategy, SplitMix64 random, int search, long seed) {
+        board.reset();
+        strategy.start(board);
+        random.setSeed(seed);
+        board.generate(initialX, initialY, random);
+        board.open(initialX, initialY);
+        while (!board.isFinished() && search == this.search && running && strategy.move()) {
+            // Play every move that can be proven, until the board is won or nothing is left.
+        }
+        return (float) board.getCellsOpened() / (width * height - mines);
+    }
+
+    @Override
+    public void dispose() {
+        cancel();
+        executor.dispose();
+    }
+
+    /**
+     * One thread's loop of attempts, with its own board and strategy.
+     */
+    private class Attempts implements AsyncTask<Void> {
+
+        private final int search;
+
+        Attempts(int search) {
+            this.search = search;
+        }
+
+        @Override
+        public Void call() {
+            Board board = new Board(width, height, mines);
+            // The strategy never guesses, so it only wins boards that need no guessing.
+            SolverStrategy strategy = new SolverStrategy(false);
+            SplitMix64 random = new SplitMix64(0);
+            int attempt;
+            while ((attempt = claimAttempt(search)) >= 0) {
+                long seed = attempt == 0 ? baseSeed : SplitMix64.mix(baseSeed + attempt);
+                float progress = attempt(board, strategy, random, search, seed);
+                finishAttempt(search, seed, progress, board.isWon());
+            }
+            strategy.dispose();
+            return null;
+        }
+
+    }
+
+}
@@ -0,0 +1,717 @@
+package ga.kylemclean.minesweeper.game;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.TimeUtils;
+import com.badlogic.gdx.utils.async.AsyncResult;
+import com.badlogic.gdx.utils.async.AsyncTask;
+
+import java.util.Arrays;
+
+/**
+ * Works out the chance that each closed cell on a {@link Board} is a mine, from what the
+ * player can see, for when there are no cells that can be proven safe.
+ * <p>
+ * The closed, unflagged cells next to opened labels form the frontier. The frontier is split
+ * into components that share no labels, and every way of placing mines in each component that
+ * agrees with its labels is enumerated by backtracking, counting the solutions with each
+ * number of mines. The components are then combined, weighting a total of K frontier mines by
+ * the number of ways to place the remaining mines in the cells away from the frontier.
+ * <p>
+ * Large components are enumerated in parallel on the {@link Workers} pool. Enumeration stops
+ * at a node and time budget, and a component that runs out falls back to counting a sample of
+ * random solutions, so the result is then an estimate. When the frontier is too large to
+ * combine exactly, each component is weighted by the overall mine density instead.
+ */
+public class ProbabilityEngine {
+
+    /** The default number of backtracking steps allowed for each component. */
+    public static final int DEFAULT_NODE_BUDGET = 1 << 20;
+    /** The default time allowed for one {@link #compute()} in milliseconds. */
+    public static final long DEFAULT_TIME_BUDGET = 8;
+
+    /** Components with at least this many cells are enumerated on the worker pool. */
+    private static final int PARALLEL_COMPONENT_CELLS = 16;
+    /** The number of random solutions counted for a component that runs out of budget. */
+    private static final int SAMPLES = 256;
+    /** The largest frontier size squared that is combined exactly. */
+    private static final long EXACT_COMBINE_WORK = 1 << 20;
+
+    private Board board;
+    private int width, height;
+    private int nodeBudget;
+    private long timeBudget;
+
+    /** The chance that each cell is a mine, from the last call to {@link #compute()}. */
+    private float[] probabilities;
+    /** The index of each cell in {@link #frontier}, or -1. */
+    private int[] frontierIndex;
+    private IntArray frontier;
+    private Array<Component> components;
+    private boolean exact;
+
+    /**
+     * Create a probability engine for a board.
+     *
+     * @param board The board to work out probabilities for.
+     */
+    public ProbabilityEngine(Board board) {
+        this.board = board;
+        width = board.getWidth();
+        height = board.getHeight();
+        nodeBudget = DEFAULT_NODE_BUDGET;
+        timeBudget = DEFAULT_TIME_BUDGET;
+        probabilities = new float[width * height];
+        frontierIndex = new int[width * height];
+        Arrays.fill(frontierIndex, -1);
+        frontier = new IntArray();
+        components = new Array<Component>();
+    }
+
+    /**
+     * Take on the board's size if it was resized since the last computation, keeping the
+     * engine's storage if it is big enough.
+     */
+    private void fitBoard() {
+        if (board.getWidth() == width && board.getHeight() == height) {
+            return;
+        }
+        width = board.getWidth();
+        height = board.getHeight();
+        if (probabilities.length < width * height) {
+            probabilities = new float[width * height];
+            frontierIndex = new int[width * height];
+        }
+        Arrays.fill(frontierIndex, -1);
+    }
+
+    /**
+     * Set how much work {@link #compute()} may do before it falls back to sampling.
+     *
+     * @param nodeBudget The number of backtracking steps allowed for each component.
+     * @param timeBudget The time allowed for one computation in milliseconds, or 0 for no
+     *                   limit, which makes the results independent of the machine's speed.
+     */
+    public void setBudget(int nodeBudget, long timeBudget) {
+        this.nodeBudget = nodeBudget;
+        this.timeBudget = timeBudget;
+    }
+
+    /**
+     * Work out the chance that each cell is a mine. Opened cells have no chance of being a mine,
+     * and flagged cells are trusted to be mines.
+     *
+     * @return Whether the probabilities are exact, rather than estimated because the budget ran out.
+     */
+    public boolean compute() {
+        fitBoard();
+        long deadline = timeBudget > 0 ? TimeUtils.nanoTime() + timeBudget * 1000000L : Long.MAX_VALUE;
+        findComponents();
+
+        // Enumerate the large components on the worker pool and the small ones on this thread.
+        Array<AsyncResult<Void>> results = new Array<AsyncResult<Void>>();
+        for (Component component : components) {
+            component.prepare(nodeBudget, deadline);
+            if (component.size >= PARALLEL_COMPONENT_CELLS && Workers.THREADS > 1) {
+                results.add(Workers.get().submit(component));
+            }
+        }
+        for (Component component : components) {
+            if (component.size < PARALLEL_COMPONENT_CELLS || Workers.THREADS <= 1) {
+                component.call();
+            }
+        }
+        for (AsyncResult<Void> result : results) {
+            result.get();
+        }
+
+        exact = true;
+        for (Component component : components) {
+            exact &= !component.sampled;
+        }
+        combine();
+
+        for (int i = 0; i < frontier.size; i++) {
+            frontierIndex[frontier.get(i)] = -1;
+        }
+        return exact;
+    }
+
+    /**
+     * @return The chance that the cell at (x, y) is a mine, from the last call to {@link #compute()}.
+     */
+    public float getProbability(int x, int y) {
+        return probabilities[y * width + x];
+    }
+
+    /**
+     * @return Whether the last call to {@link #compute()} enumerated every component fully.
+     */
+    public boolean isExact() {
+        return exact;
+    }
+
+    /**
+     * Find the closed, unflagged cell least likely to be a mine, from the last call to
+     * {@link #compute()}. Ties go to the first cell in row order.
+     *
+     * @return The index of the cell ({@code y * width + x}), or -1 if there is none.
+     */
+    public int getSafestCell() {
+        int safest = -1;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int index = y * width + x;
+                if ((board.getCell(x, y) & (Board.OPENED | Board.FLAGGED)) == 0
+                        && (safest < 0 || probabilities[index] < probabilities[safest])) {
+                    safest = index;
+                }
+            }
+        }
+        return safest;
+    }
+
+    /**
+     * Find the frontier and split it into components, each listing its cells in the order
+     * they are reached from its first label so that backtracking meets labels early.
+     */
+    private void findComponents() {
+        frontier.clear();
+        components.clear();
+
+        // Collect the labels that touch closed cells, and the closed cells they touch.
+        IntArray labels = new IntArray();
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int cell = board.getCell(x, y);
+                if ((cell & Board.OPENED) == 0 || (cell & Board.SURROUNDING_MINES_MASK) == 0) {
+                    continue;
+                }
+                boolean touchesFrontier = false;
+                for (int ny = Math.max(y - 1, 0); ny <= Math.min(y + 1, height - 1); ny++) {
+                    for (int nx = Math.max(x - 1, 0); nx <= Math.min(x + 1, width - 1); nx++) {
+                        if ((board.getCell(nx, ny) & (Board.OPENED | Board.FLAGGED)) == 0) {
+                            touchesFrontier = true;
+                            int index = ny * width + nx;
+                            if (frontierIndex[index] < 0) {
+                                frontierIndex[index] = frontier.size;
+                                frontier.add(index);
+                            }
+                        }
+                    }
+                }
+                if (touchesFrontier) {
+                    labels.add(y * width + x);
+                }
+            }
+        }
+
+        // List the labels touching each cell.
+        int frontierSize = frontier.size;
+        int[] cellLabels = new int[frontierSize * 8];
+        int[] cellLabelCounts = new int[frontierSize];
+        int[] neighbours = new int[8];
+        for (int label = 0; label < labels.size; label++) {
+            int count = frontierNeighbours(labels.get(label), neighbours);
+            for (int i = 0; i < count; i++) {
+                int f = neighbours[i];
+                cellLabels[f * 8 + cellLabelCounts[f]++] = label;
+            }
+        }
+
+        // Walk each component from its first label, collecting its labels and cells.
+        boolean[] labelSeen = new boolean[labels.size];
+        int[] localIndex = new int[frontierSize];
+        Arrays.fill(localIndex, -1);
+        IntArray queue = new IntArray();
+        IntArray componentCells = new IntArray();
+        IntArray componentLabels = new IntArray();
+        for (int first = 0; first < labels.size; first++) {
+            if (labelSeen[first]) {
+                continue;
+            }
+            componentCells.clear();
+            componentLabels.clear();
+            queue.clear();
+            queue.add(first);
+            labelSeen[first] = true;
+            for (int head = 0; head < queue.size; head++) {
+                int label = queue.get(head);
+                componentLabels.add(label);
+                int count = frontierNeighbours(labels.get(label), neighbours);
+                for (int i = 0; i < count; i++) {
+                    int f = neighbours[i];
+                    if (localIndex[f] >= 0) {
+                        continue;
+                    }
+                    localIndex[f] = componentCells.size;
+                    componentCells.add(f);
+                    for (int j = 0; j < cellLabelCounts[f]; j++) {
+                        int next = cellLabels[f * 8 + j];
+                        if (!labelSeen[next]) {
+                            labelSeen[next] = true;
+                            queue.add(next);
+                        }
+                    }
+                }
+            }
+
+            Component component = new Component(componentCells.size, componentLabels.size, components.size);
+            for (int i = 0; i < componentCells.size; i++) {
+                component.cells[i] = frontier.get(componentCells.get(i));
+            }
+            for (int c = 0; c < componentLabels.size; c++) {
+                int labelCell = labels.get(componentLabels.get(c));
+                component.labelMines[c] = remainingMines(labelCell % width, labelCell / width);
+                int count = frontierNeighbours(labelCell, neighbours);
+                component.labelCells[c] = count;
+                for (int i = 0; i < count; i++) {
+                    int local = localIndex[neighbours[i]];
+                    component.cellLabels[local * 8 + component.cellLabelCounts[local]++] = c;
+                }
+            }
+            components.add(component);
+        }
+    }
+
+    /**
+     * Combine the solution counts of every component into probabilities for every cell.
+     */
+    private void combine() {
+        int frontierSize = frontier.size;
+        int minesLeft = board.getMines() - board.getCellsFlagged();
+        int otherCells = -frontierSize;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int cell = board.getCell(x, y);
+                if ((cell & Board.OPENED) != 0) {
+                    probabilities[y * width + x] = 0;
+                } else if ((cell & Board.FLAGGED) != 0) {
+                    probabilities[y * width + x] = 1;
+                } else {
+                    otherCells++;
+                }
+            }
+        }
+
+        float otherProbability;
+        if ((long) frontierSize * frontierSize <= EXACT_COMBINE_WORK) {
+            otherProbability = combineExactly(frontierSize, minesLeft, otherCells);
+        } else {
+            otherProbability = combineByDensity(frontierSize, minesLeft, otherCells);
+        }
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int index = y * width + x;
+                if ((board.getCell(x, y) & (Board.OPENED | Board.FLAGGED)) == 0 && frontierIndex[index] < 0) {
+                    probabilities[index] = otherProbability;
+                }
+            }
+        }
+    }
+
+    /**
+     * Combine the components, weighting each total number of frontier mines K by the number
+     * of ways to place the other {@code minesLeft - K} mines among the other cells.
+     *
+     * @return The chance that a cell away from the frontier is a mine.
+     */
+    private float combineExactly(int frontierSize, int minesLeft, int otherCells) {
+        // weights[K] is proportional to C(otherCells, minesLeft - K), built from the ratio
+        // C(n, r) / C(n, r + 1) = (r + 1) / (n - r) in log space so that it can't overflow.
+        double[] weights = new double[frontierSize + 1];
+        int minK = Math.max(0, minesLeft - otherCells);
+        int maxK = Math.min(frontierSize, minesLeft);
+        if (minK > maxK) {
+            // The flags don't fit the board, so ignore the mine count.
+            Arrays.fill(weights, 1);
+        } else {
+            double logWeight = 0;
+            double maxLogWeight = 0;
+            double[] logWeights = new double[frontierSize + 1];
+            for (int k = minK + 1; k <= maxK; k++) {
+                int r = minesLeft - k;
+                logWeight += Math.log((r + 1.0) / (otherCells - r));
+                logWeights[k] = logWeight;
+                maxLogWeight = Math.max(maxLogWeight, logWeight);
+            }
+            for (int k = minK; k <= maxK; k++) {
+                weights[k] = Math.exp(logWeights[k] - maxLogWeight);
+            }
+        }
+
+        // after[c][m] is the weight of the components from c on, given m mines before them:
+        // the sum over their solutions with j mines of weights[m + j].
+        int count = components.size;
+        double[][] after = new double[count + 1][];
+        after[count] = weights;
+        for (int c = count - 1; c >= 0; c--) {
+            double[] counts = components.get(c).counts;
+            double[] next = after[c + 1];
+            double[] current = new double[frontierSize + 1];
+            for (int m = 0; m <= frontierSize; m++) {
+                for (int k = 0; k < counts.length && m + k <= frontierSize; k++) {
+                    current[m] += counts[k] * next[m + k];
+                }
+            }
+            after[c] = normalize(current);
+        }
+
+        // before is the distribution of mines in the components before c.
+        double[] before = new double[] {1};
+        for (int c = 0; c < count; c++) {
+            Component component = components.get(c);
+            double[] next = after[c + 1];
+            // kWeights[k] is the weight of this component having k mines, over every way the others can.
+            double[] kWeights = new double[component.size + 1];
+            for (int k = 0; k <= component.size; k++) {
+                for (int i = 0; i < before.length && i + k <= frontierSize; i++) {
+                    kWeights[k] += before[i] * next[i + k];
+                }
+            }
+            component.setProbabilities(kWeights, probabilities);
+            before = convolve(before, component.counts);
+        }
+
+        if (otherCells <= 0) {
+            return 0;
+        }
+        double[] total = before;
+        double expected = 0;
+        double sum = 0;
+        for (int k = 0; k < total.length; k++) {
+            double weight = total[k] * weights[k];
+            expected += weight * (minesLeft - k);
+            sum += weight;
+        }
+        return sum > 0 ? clamp((float) (expected / sum / otherCells)) : clamp((float) minesLeft / otherCells);
+    }
+
+    /**
+     * Combine the components as if each cell is a mine with the board's overall mine density,
+     * which is what the exact weights tend to when there are many cells away from the frontier.
+     *
+     * @return The chance that a cell away from the frontier is a mine.
+     */
+    private float combineByDensity(int frontierSize, int minesLeft, int otherCells) {
+        float density = clamp((float) minesLeft / Math.max(frontierSize + otherCells, 1));
+        double logOdds = Math.log(Math.max(density, 1e-6) / Math.max(1 - density, 1e-6));
+        double expectedFrontierMines = 0;
+        for (Component component : components) {
+            // Scale the weights relative to the most likely number of mines so that they can't overflow.
+            double centre = component.size * (double) density;
+            double[] kWeights = new double[component.size + 1];
+            for (int k = 0; k <= component.size; k++) {
+                kWeights[k] = component.counts[k] > 0 ? logOdds * (k - centre) : Double.NEGATIVE_INFINITY;
+            }
+            double max = Double.NEGATIVE_INFINITY;
+            for (double kWeight : kWeights) {
+                max = Math.max(max, kWeight);
+            }
+            for (int k = 0; k <= component.size; k++) {
+                kWeights[k] = Math.exp(kWeights[k] - max);
+            }
+            expectedFrontierMines += component.setProbabilities(kWeights, probabilities);
+        }
+        if (otherCells <= 0) {
+            return 0;
+        }
+        return clamp((float) ((minesLeft - expectedFrontierMines) / otherCells));
+    }
+
+    /**
+     * @return The flagged neighbours of a label subtracted from it.
+     */
+    private int remainingMines(int x, int y) {
+        int remaining = board.getSurroundingMines(x, y);
+        for (int ny = Math.max(y - 1, 0); ny <= Math.min(y + 1, height - 1); ny++) {
+            for (int nx = Math.max(x - 1, 0); nx <= Math.min(x + 1, width - 1); nx++) {
+                if ((board.getCell(nx, ny) & (Board.OPENED | Board.FLAGGED)) == Board.FLAGGED) {
+                    remaining--;
+                }
+            }
+        }
+        return remaining;
+    }
+
+    /**
+     * Get the frontier indices of the closed, unflagged neighbours of a cell.
+     *
+     * @return The number of neighbours written to {@code out}.
+     */
+    private int frontierNeighbours(int index, int[] out) {
+        int x = index % width;
+        int y = index / width;
+        int count = 0;
+        for (int ny = Math.max(y - 1, 0); ny <= Math.min(y + 1, height - 1); ny++) {
+            for (int nx = Math.max(x - 1, 0); nx <= Math.min(x + 1, width - 1); nx++) {
+                int f = frontierIndex[ny * width + nx];
+                if (f >= 0) {
+                    out[count++] = f;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Convolve two mine count distributions, scaling the result so that its largest entry is 1.
+     */
+    private static double[] convolve(double[] a, double[] b) {
+        double[] result = new double[a.length + b.length - 1];
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] == 0) {
+                continue;
+            }
+            for (int j = 0; j < b.length; j++) {
+                result[i + j] += a[i] * b[j];
+            }
+        }
+        return normalize(result);
+    }
+
+    /**
+     * Scale an array of weights in place so that its largest entry is 1.
+     */
+    private static double[] normalize(double[] weights) {
+        double max = 0;
+        for (double weight : weights) {
+            max = Math.max(max, weight);
+        }
+        if (max > 0) {
+            for (int i = 0; i < weights.length; i++) {
+                weights[i] /= max;
+            }
+        }
+        return weights;
+    }
+
+    private static float clamp(float probability) {
+        return Math.max(0, Math.min(1, probability));
+    }
+
+    /**
+     * A set of frontier cells and the labels that touch them, sharing no labels with any
+     * other component, so that its solutions can be counted on their own.
+     */
+    private static class Component implements AsyncTask<Void> {
+
+        final int size;
+        /** The board index of each cell. */
+        final int[] cells;
+        /** The labels touching each cell, 8 entries per cell. */
+        final int[] cellLabels;
+        final int[] cellLabelCounts;
+        /** The mines each label still needs, and the number of its cells. */
+        final int[] labelMines, labelCells;
+
+        /** counts[k] is the number of solutions with k mines, scaled so that the largest is 1. */
+        double[] counts;
+        /** cellCounts[k][i] is the number of solutions with k mines in which cell i is a mine. */
+        double[][] cellCounts;
+        boolean sampled;
+
+        private final long seed;
+        private int nodeBudget;
+        private long deadline;
+
+        /** The state of the search: each cell's value, or -1, and each label's remaining mines and cells. */
+        private int[] values, remainingMines, remainingCells;
+        private int mines;
+        private long nodes;
+
+        Component(int size, int labels, long seed) {
+            this.size = size;
+            this.seed = seed;
+            cells = new int[size];
+            cellLabels = new int[size * 8];
+            cellLabelCounts = new int[size];
+            labelMines = new int[labels];
+            labelCells = new int[labels];
+        }
+
+        void prepare(int nodeBudget, long deadline) {
+            this.nodeBudget = nodeBudget;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public Void call() {
+            values = new int[size];
+            remainingMines = new int[labelMines.length];
+            remainingCells = new int[labelMines.length];
+            counts = new double[size + 1];
+            cellCounts = new double[size + 1][];
+            sampled = !enumerate();
+            if (sampled) {
+                Arrays.fill(counts, 0);
+                Arrays.fill(cellCounts, null);
+                SplitMix64 random = new SplitMix64(seed);
+                for (int i = 0; i < SAMPLES; i++) {
+                    sample(random);
+                }
+            }
+
+            double max = 0;
+            for (double count : counts) {
+                max = Math.max(max, count);
+            }
+            if (max == 0) {
+                // The labels can't all be satisfied, because of a wrong flag, so treat every cell alike.
+                counts[0] = 1;
+                cellCounts[0] = new double[size];
+                Arrays.fill(cellCounts[0], 0.5);
+                max = 1;
+            }
+            for (int k = 0; k <= size; k++) {
+                counts[k] /= max;
+                if (cellCounts[k] != null) {
+                    for (int i = 0; i < size; i++) {
+                        cellCounts[k][i] /= max;
+                    }
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Count every solution by backtracking.
+         *
+         * @return Whether the search finished within the budget.
+         */
+        private boolean enumerate() {
+            reset();
+            nodes = 0;
+            int i = 0;
+            values[0] = -1;
+            while (i >= 0) {
+                if (i == size) {
+                    record();
+                    i--;
+                    continue;
+                }
+                if (values[i] >= 0) {
+                    assign(i, values[i], -1);
+                }
+                if (values[i] == 1) {
+                    values[i] = -1;
+                    i--;
+                    continue;
+                }
+                values[i]++;
+                if (++nodes > nodeBudget || ((nodes & 1023) == 0 && TimeUtils.nanoTime() > deadline)) {
+                    return false;
+                }
+                if (assign(i, values[i], 1)) {
+                    i++;
+                    if (i < size) {
+                        values[i] = -1;
+                    }
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Find one solution by backtracking with each cell's values tried in a random order,
+         * giving up after a few steps per cell.
+         */
+        private void sample(SplitMix64 random) {
+            reset();
+            int[] tried = new int[size];
+            int[] first = new int[size];
+            int limit = size * 8 + 64;
+            int steps = 0;
+            int i = 0;
+            values[0] = -1;
+            while (i >= 0 && steps++ < limit) {
+                if (i == size) {
+                    record();
+                    return;
+                }
+                if (values[i] >= 0) {
+                    assign(i, values[i], -1);
+                } else {
+                    tried[i] = 0;
+                    first[i] = random.nextBoolean() ? 1 : 0;
+                }
+                if (tried[i] == 2) {
+                    values[i] = -1;
+                    i--;
+                    continue;
+                }
+                values[i] = tried[i]++ == 0 ? first[i] : 1 - first[i];
+                if (assign(i, values[i], 1)) {
+                    i++;
+                    if (i < size) {
+                        values[i] = -1;
+                    }
+                }
+            }
+        }
+
+        private void reset() {
+            System.arraycopy(labelMines, 0, remainingMines, 0, labelMines.length);
+            System.arraycopy(labelCells, 0, remainingCells, 0, labelCells.length);
+            Arrays.fill(values, -1);
+            mines = 0;
+        }
+
+        /**
+         * Apply (direction 1) or undo (direction -1) setting a cell to a value.
+         *
+         * @return Whether every label touching the cell can still be satisfied.
+         */
+        private boolean assign(int i, int value, int direction) {
+            mines += value * direction;
+            boolean consistent = true;
+            for (int j = 0; j < cellLabelCounts[i]; j++) {
+                int label = cellLabels[i * 8 + j];
+                remainingMines[label] -= value * direction;
+                remainingCells[label] -= direction;
+                if (remainingMines[label] < 0 || remainingMines[label] > remainingCells[label]) {
+                    consistent = false;
+                }
+            }
+            return consistent;
+        }
+
+        private void record() {
+            counts[mines]++;
+            double[] row = cellCounts[mines];
+            if (row == null) {
+                row = cellCounts[mines] = new double[size];
+            }
+            for (int i = 0; i < size; i++) {
+                row[i] += values[i];
+            }
+        }
+
+        /**
+         * Write the probability of each cell, given a weight for each number of mines.
+         *
+         * @return The expected number of mines in the component.
+         */
+        double setProbabilities(double[] kWeights, float[] probabilities) {
+            double total = 0;
+            double expected = 0;
+            for (int k = 0; k <= size; k++) {
+                total += counts[k] * kWeights[k];
+                expected += counts[k] * kWeights[k] * k;
+            }
+            for (int i = 0; i < size; i++) {
+                double mine = 0;
+                for (int k = 0; k <= size; k++) {
+                    if (cellCounts[k] != null) {
+                        mine += cellCounts[k][i] * kWeights[k];
+                    }
+                }
+                probabilities[cells[i]] = total > 0 ? clamp((float) (mine / total)) : 0.5f;
+            }
+            return total > 0 ? expected / total : size / 2.0;
+        }
+
+    }
+
+}
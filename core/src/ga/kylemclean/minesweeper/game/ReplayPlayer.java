@@ -0,0 +1,207 @@
+package ga.kylemclean.minesweeper.game;
+
+/**
+ * Plays back a log written by {@link ReplayWriter} on a headless {@link Board}, to check what
+ * the game's outcome and time really were.
+ * <p>
+ * The board is kept between replays of the same size, so checking many logs allocates nothing
+ * per log.
+ */
+public class ReplayPlayer {
+
+    private Board board;
+    private SplitMix64 random;
+    private UndoJournal journal;
+
+    private long seed;
+    private int moves;
+    private long time;
+    private long finishTime;
+    private boolean truncated;
+    private String error;
+
+    // Read position in the log being played.
+    private byte[] data;
+    private int position, length;
+
+    public ReplayPlayer() {
+        random = new SplitMix64(0);
+        // Only undos that worked are logged, so the journal is never allowed to drop a move.
+        journal = new UndoJournal(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Play back a log. A log that ends part of the way through a move, as one cut short by a
+     * crash does, is played up to the last whole move.
+     *
+     * @param data   The log.
+     * @param length The number of bytes of the log in data.
+     * @return Whether the log is valid. If not, {@link #getError()} says why.
+     */
+    public boolean play(byte[] data, int length) {
+        this.data = data;
+        this.length = length;
+        position = 0;
+        moves = 0;
+        time = 0;
+        finishTime = -1;
+        truncated = false;
+        error = null;
+
+        if (length < 5 || readInt() != ReplayWriter.MAGIC) {
+            return fail("not a replay log");
+        }
+        int version = data[position++];
+        if (version != ReplayWriter.VERSION) {
+            return fail("unsupported version " + version);
+        }
+        int width = readVarint();
+        int height = readVarint();
+        int mines = readVarint();
+        if (width < 0 || height < 0 || mines < 0 || position + 8 > length) {
+            return fail("header is cut short");
+        }
+        seed = readLong();
+        if (board == null || board.getWidth() != width || board.getHeight() != height
+                || board.getMines() != mines) {
+            try {
+                board = new Board(width, height, mines);
+            } catch (IllegalArgumentException e) {
+                return fail(e.getMessage());
+            }
+            board.setJournal(journal);
+        } else {
+            board.reset();
+        }
+
+        while (position < length) {
+            int move = readVarint();
+            int delta = readVarint();
+            if (move < 0 || delta < 0) {
+                truncated = true;
+                break;
+            }
+            int action = move & 3;
+            int index = move >>> 2;
+            int x = index % width;
+            int y = index / width;
+            if (y >= height) {
+                return fail("move " + moves + " is off the board");
+            }
+            if (action == ReplayWriter.UNDO) {
+                if (!board.undo()) {
+                    return fail("move " + moves + " undoes a move that isn't there");
+                }
+                time += delta;
+                moves++;
+                finishTime = -1;
+                continue;
+            }
+            if (board.isFinished()) {
+                return fail("move " + moves + " is after the end of the game");
+            }
+            time += delta;
+            if (!board.isGenerated()) {
+                if (action != ReplayWriter.OPEN) {
+                    return fail("the first move must open a cell");
+                }
+                random.setSeed(seed);
+                board.generate(x, y, random);
+            }
+            if (action == ReplayWriter.OPEN) {
+                board.open(x, y);
+            } else if (action == ReplayWriter.FLAG) {
+                board.toggleFlag(x, y);
+            } else if (action == ReplayWriter.CHORD) {
+                board.chord(x, y);
+            } else {
+                return fail("move " + moves + " has unknown action " + action);
+            }
+            moves++;
+            if (board.isFinished()) {
+                finishTime = time;
+            }
+        }
+        return true;
+    }
+
+    private boolean fail(String error) {
+        this.error = error;
+        return false;
+    }
+
+    /**
+     * @return The next varint, or -1 if the log ends part of the way through it.
+     */
+    private int readVarint() {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            if (position >= length) {
+                return -1;
+            }
+            byte b = data[position++];
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        return -1;
+    }
+
+    private int readInt() {
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            value = value << 8 | (data[position++] & 0xFF);
+        }
+        return value;
+    }
+
+    private long readLong() {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = value << 8 | (data[position++] & 0xFF);
+        }
+        return value;
+    }
+
+    /**
+     * @return The board as the last log left it.
+     */
+    public Board getBoard() {
+        return board;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @return The number of moves played back.
+     */
+    public int getMoves() {
+        return moves;
+    }
+
+    /**
+     * @return The game time in milliseconds at which the game was won or lost, or -1 if the
+     * log ends before that.
+     */
+    public long getFinishTime() {
+        return finishTime;
+    }
+
+    /**
+     * @return Whether the log ended part of the way through a move.
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * @return Why the last log was invalid, or null if it was valid.
+     */
+    public String getError() {
+        return error;
+    }
+
+}
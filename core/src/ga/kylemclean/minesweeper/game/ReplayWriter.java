@@ -0,0 +1,117 @@
+package ga.kylemclean.minesweeper.game;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.TimeUtils;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Records a game as a compact binary log that a {@link ReplayPlayer} can play back.
+ * <p>
+ * The log starts with a header: the magic number {@link #MAGIC}, a version byte, the width,
+ * height and mines as varints and the 8-byte seed. Each move follows as two varints: the cell
+ * index shifted left by two with the action in the low bits, and the milliseconds of game time
+ * since the previous move. Most moves take two to four bytes. An {@link #UNDO} has a cell index
+ * of zero and takes back the latest move that hasn't been undone, even one that lost the game.
+ * <p>
+ * Moves are encoded into a buffer which is appended to the file when it fills up, when a
+ * second of game time has passed since the last write, when {@link #flushIfDue()} finds a move
+ * that has waited a second of real time, and when {@link #flush()} is called.
+ * Only whole moves are written, so a log cut short by a crash is still a valid replay of the
+ * moves before it.
+ */
+public class ReplayWriter {
+
+    /** The first four bytes of a replay log, "MSRP". */
+    public static final int MAGIC = 0x4D535250;
+    public static final int VERSION = 1;
+
+    /** Actions, stored in the low two bits of a move. */
+    public static final int OPEN = 0, FLAG = 1, CHORD = 2, UNDO = 3;
+
+    /** The most bytes one move can take: two 5-byte varints. */
+    private static final int MAX_MOVE_BYTES = 10;
+    private static final int BUFFER_SIZE = 8192;
+    private static final long FLUSH_INTERVAL = 1000;
+
+    private FileHandle file;
+    private ByteBuffer buffer;
+    private long lastTime, lastFlushTime;
+    /** The real time in milliseconds at which the oldest move not yet written was recorded. */
+    private long pendingSince;
+
+    /**
+     * Start a log, replacing the file if it exists. The header is written straight away.
+     *
+     * @param file   The file to write the log to.
+     * @param width  The width of the board in cells.
+     * @param height The height of the board in cells.
+     * @param mines  The number of mines on the board.
+     * @param seed   The seed the board was generated from.
+     */
+    public ReplayWriter(FileHandle file, int width, int height, int mines, long seed) {
+        this.file = file;
+        buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        buffer.putInt(MAGIC);
+        buffer.put((byte) VERSION);
+        putVarint(width);
+        putVarint(height);
+        putVarint(mines);
+        buffer.putLong(seed);
+        file.writeBytes(buffer.array(), 0, buffer.position(), false);
+        buffer.clear();
+    }
+
+    /**
+     * Record a move. The first move must be the {@link #OPEN} that generated the board.
+     *
+     * @param action The action: {@link #OPEN}, {@link #FLAG}, {@link #CHORD} or {@link #UNDO}.
+     * @param index  The index of the cell ({@code y * width + x}).
+     * @param time   The game time of the move in milliseconds.
+     */
+    public void record(int action, int index, long time) {
+        if (buffer.remaining() < MAX_MOVE_BYTES) {
+            flush();
+        }
+        if (buffer.position() == 0) {
+            pendingSince = TimeUtils.millis();
+        }
+        putVarint(index << 2 | action);
+        putVarint((int) Math.max(time - lastTime, 0));
+        lastTime = time;
+        if (time - lastFlushTime >= FLUSH_INTERVAL) {
+            flush();
+        }
+    }
+
+    /**
+     * Write the moves recorded since the last write if the oldest of them has waited a second
+     * of real time, so that a move followed by no others is still saved soon after it is made.
+     * Cheap enough to call every frame.
+     */
+    public void flushIfDue() {
+        if (buffer.position() > 0 && TimeUtils.millis() - pendingSince >= FLUSH_INTERVAL) {
+            flush();
+        }
+    }
+
+    /**
+     * Append the moves recorded since the last write to the file.
+     */
+    public void flush() {
+        if (buffer.position() > 0) {
+            file.writeBytes(buffer.array(), 0, buffer.position(), true);
+            buffer.clear();
+        }
+        lastFlushTime = lastTime;
+    }
+
+    private void putVarint(int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+}
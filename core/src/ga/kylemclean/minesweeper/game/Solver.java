@@ -0,0 +1,363 @@
+package ga.kylemclean.minesweeper.game;
+
+import com.badlogic.gdx.utils.IntArray;
+
+import java.util.Arrays;
+
+/**
+ * Finds cells on a {@link Board} that can be proven safe or proven to be mines, using only
+ * what the player can see: the labels of opened cells and the flags.
+ * <p>
+ * Each opened cell with a label is a constraint: the number of mines among its closed,
+ * unflagged neighbours is its label minus the flags and known mines around it. The solver
+ * applies two rules to these constraints:
+ * <ul>
+ * <li>Single point: if a constraint needs no more mines, all of its unknown neighbours are
+ * safe, and if it needs as many mines as it has unknown neighbours, they are all mines.</li>
+ * <li>Pairwise: for two constraints A and B that share unknown neighbours, if A needs as many
+ * more mines than B as it has neighbours that B doesn't, then those neighbours are all mines
+ * and B's neighbours that A doesn't have are all safe. This includes the subset rule.</li>
+ * </ul>
+ * The solver listens to the board and only looks again at constraints whose neighbourhood
+ * changed, so the work per move follows the size of the move rather than the board.
+ * Two constraints can only share neighbours if they are at most two cells apart, so the
+ * unknown neighbours of both fit in a 7x7 window around A, and the set operations are done on
+ * 49-bit masks of that window.
+ * <p>
+ * Flags are taken to be mines, so a proof can rest on a flag. When a flag is taken off, a
+ * chain of proofs may lead from it anywhere on the board, so everything is forgotten and
+ * proven again.
+ */
+public class Solver implements BoardListener {
+
+    /** Set for a cell the solver has proven safe. */
+    private static final byte KNOWN_SAFE = 1;
+    /** Set for a cell the solver has proven to be a mine. */
+    private static final byte KNOWN_MINE = 2;
+    /** Set for a constraint cell that is waiting in {@link #queue}. */
+    private static final byte QUEUED = 4;
+    /** Set for a cell that was flagged when the solver last saw it change. */
+    private static final byte FLAG_SEEN = 8;
+
+    /** The width and height of the window that constraint masks are relative to. */
+    private static final int WINDOW = 7;
+
+    private Board board;
+    private int width, height;
+
+    /** The solver's state bits for each cell. */
+    private byte[] known;
+    /** Constraint cells whose neighbourhood changed since they were last looked at. */
+    private IntArray queue;
+    /** Cells proven safe and proven to be mines, in the order they were found. */
+    private IntArray safeCells, mineCells;
+    /** Whether anything has been proven since the solver last forgot everything. */
+    private boolean proven;
+
+    /**
+     * Create a solver for a board and start listening to it.
+     *
+     * @param board The board to solve.
+     */
+    public Solver(Board board) {
+        this.board = board;
+        width = board.getWidth();
+        height = board.getHeight();
+        known = new byte[width * height];
+        queue = new IntArray();
+        safeCells = new IntArray();
+        mineCells = new IntArray();
+        board.addListener(this);
+        cellsChanged(0, 0, width - 1, height - 1);
+    }
+
+    /**
+     * Forget everything that was proven and look at every constraint again, for when the
+     * board has been reset or a move has been undone.
+     */
+    public void reset() {
+        Arrays.fill(known, (byte) 0);
+        queue.clear();
+        safeCells.clear();
+        mineCells.clear();
+        proven = false;
+        cellsChanged(0, 0, width - 1, height - 1);
+    }
+
+    /**
+     * Take on the board's new size and forget everything, keeping the solver's storage if it
+     * is big enough.
+     */
+    private void fitBoard() {
+        width = board.getWidth();
+        height = board.getHeight();
+        if (known.length < width * height) {
+            known = new byte[width * height];
+        } else {
+            Arrays.fill(known, 0, width * height, (byte) 0);
+        }
+        queue.clear();
+        safeCells.clear();
+        mineCells.clear();
+        proven = false;
+    }
+
+    /**
+     * Stop listening to the board.
+     */
+    public void dispose() {
+        board.removeListener(this);
+    }
+
+    @Override
+    public void cellsChanged(int minX, int minY, int maxX, int maxY) {
+        if (board.getWidth() != width || board.getHeight() != height) {
+            // The board was resized, which clears it and reports every cell as changed.
+            fitBoard();
+        }
+        if (board.isLost()) {
+            // Nothing is left to prove, and losing reports every mine as changed.
+            return;
+        }
+        if (seeFlags(minX, minY, maxX, maxY) && proven) {
+            // A proof may have rested on the flag that was taken off.
+            reset();
+            return;
+        }
+        // The constraints that changed are the changed cells and the cells around them.
+        minX = Math.max(minX - 1, 0);
+        minY = Math.max(minY - 1, 0);
+        maxX = Math.min(maxX + 1, width - 1);
+        maxY = Math.min(maxY + 1, height - 1);
+        for (int y = minY; y <= maxY; y++) {
+            for (int x = minX; x <= maxX; x++) {
+                enqueue(y * width + x);
+            }
+        }
+    }
+
+    /**
+     * Record which of the changed cells are flagged.
+     *
+     * @return Whether a flag the solver saw before has been taken off.
+     */
+    private boolean seeFlags(int minX, int minY, int maxX, int maxY) {
+        boolean unflagged = false;
+        for (int y = minY; y <= maxY; y++) {
+            for (int x = minX; x <= maxX; x++) {
+                int index = y * width + x;
+                if ((board.getCell(x, y) & Board.FLAGGED) != 0) {
+                    known[index] |= FLAG_SEEN;
+                } else if ((known[index] & FLAG_SEEN) != 0) {
+                    known[index] &= ~FLAG_SEEN;
+                    unflagged = true;
+                }
+            }
+        }
+        return unflagged;
+    }
+
+    /**
+     * Apply the rules to every constraint that changed until nothing more can be proven.
+     *
+     * @return Whether any new cells were proven safe or proven to be mines.
+     */
+    public boolean solve() {
+        int found = safeCells.size + mineCells.size;
+        while (queue.size > 0) {
+            int index = queue.pop();
+            known[index] &= ~QUEUED;
+            check(index);
+        }
+        return safeCells.size + mineCells.size != found;
+    }
+
+    /**
+     * Find a closed, unflagged cell that has been proven safe.
+     *
+     * @return The index of the cell ({@code y * width + x}), or -1 if there is none.
+     */
+    public int nextSafeCell() {
+        while (safeCells.size > 0) {
+            int index = safeCells.peek();
+            if ((board.getCell(index % width, index / width) & (Board.OPENED | Board.FLAGGED)) == 0) {
+                return index;
+            }
+            safeCells.pop();
+        }
+        return -1;
+    }
+
+    /**
+     * Find a closed, unflagged cell that has been proven to be a mine.
+     *
+     * @return The index of the cell ({@code y * width + x}), or -1 if there is none.
+     */
+    public int nextMineCell() {
+        while (mineCells.size > 0) {
+            int index = mineCells.peek();
+            if ((board.getCell(index % width, index / width) & (Board.OPENED | Board.FLAGGED)) == 0) {
+                return index;
+            }
+            mineCells.pop();
+        }
+        return -1;
+    }
+
+    /**
+     * @return Whether the solver has proven that the cell at (x, y) is safe.
+     */
+    public boolean isKnownSafe(int x, int y) {
+        return (known[y * width + x] & KNOWN_SAFE) != 0;
+    }
+
+    /**
+     * @return Whether the solver has proven that the cell at (x, y) is a mine.
+     */
+    public boolean isKnownMine(int x, int y) {
+        return (known[y * width + x] & KNOWN_MINE) != 0;
+    }
+
+    /**
+     * Add a cell to the queue if it is a constraint and isn't queued already.
+     */
+    private void enqueue(int index) {
+        if ((known[index] & QUEUED) == 0) {
+            int cell = board.getCell(index % width, index / width);
+            if ((cell & Board.OPENED) != 0 && (cell & Board.SURROUNDING_MINES_MASK) != 0) {
+                known[index] |= QUEUED;
+                queue.add(index);
+            }
+        }
+    }
+
+    /**
+     * Apply the single point rule to a constraint, then the pairwise rule with each
+     * constraint near it.
+     */
+    private void check(int index) {
+        int ax = index % width;
+        int ay = index / width;
+        int originX = ax - WINDOW / 2;
+        int originY = ay - WINDOW / 2;
+
+        long unknownA = unknownNeighbours(ax, ay, originX, originY);
+        if (unknownA == 0) {
+            return;
+        }
+        int remainingA = remainingMines(ax, ay);
+        int unknownCountA = Long.bitCount(unknownA);
+        if (remainingA < 0 || remainingA > unknownCountA) {
+            // A wrong flag makes this constraint impossible.
+            return;
+        }
+        if (remainingA == 0) {
+            prove(unknownA, originX, originY, KNOWN_SAFE);
+            return;
+        }
+        if (remainingA == unknownCountA) {
+            prove(unknownA, originX, originY, KNOWN_MINE);
+            return;
+        }
+
+        for (int by = Math.max(ay - 2, 0); by <= Math.min(ay + 2, height - 1); by++) {
+            for (int bx = Math.max(ax - 2, 0); bx <= Math.min(ax + 2, width - 1); bx++) {
+                int cellB = board.getCell(bx, by);
+                if ((bx == ax && by == ay) || (cellB & Board.OPENED) == 0
+                        || (cellB & Board.SURROUNDING_MINES_MASK) == 0) {
+                    continue;
+                }
+                long unknownB = unknownNeighbours(bx, by, originX, originY);
+                if ((unknownA & unknownB) == 0) {
+                    continue;
+                }
+                int remainingB = remainingMines(bx, by);
+                long onlyA = unknownA & ~unknownB;
+                long onlyB = unknownB & ~unknownA;
+                if (remainingA - remainingB == Long.bitCount(onlyA)) {
+                    prove(onlyA, originX, originY, KNOWN_MINE);
+                    prove(onlyB, originX, originY, KNOWN_SAFE);
+                } else if (remainingB - remainingA == Long.bitCount(onlyB)) {
+                    prove(onlyB, originX, originY, KNOWN_MINE);
+                    prove(onlyA, originX, originY, KNOWN_SAFE);
+                } else {
+                    continue;
+                }
+                if ((onlyA | onlyB) != 0) {
+                    // A's unknown neighbours have changed, so look at it again later.
+                    enqueue(index);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the closed, unflagged neighbours of a cell that haven't been proven safe or mines,
+     * as a mask of a window of the board.
+     *
+     * @param x       The x-coordinate of the cell.
+     * @param y       The y-coordinate of the cell.
+     * @param originX The x-coordinate of the bottom left of the window.
+     * @param originY The y-coordinate of the bottom left of the window.
+     * @return A mask with bit {@code (ny - originY) * WINDOW + (nx - originX)} set for each
+     * unknown neighbour (nx, ny).
+     */
+    private long unknownNeighbours(int x, int y, int originX, int originY) {
+        long mask = 0;
+        for (int ny = Math.max(y - 1, 0); ny <= Math.min(y + 1, height - 1); ny++) {
+            for (int nx = Math.max(x - 1, 0); nx <= Math.min(x + 1, width - 1); nx++) {
+                if ((board.getCell(nx, ny) & (Board.OPENED | Board.FLAGGED)) == 0
+                        && (known[ny * width + nx] & (KNOWN_SAFE | KNOWN_MINE)) == 0) {
+                    mask |= 1L << ((ny - originY) * WINDOW + (nx - originX));
+                }
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * @return The label of a cell minus the flags and proven mines around it.
+     */
+    private int remainingMines(int x, int y) {
+        int remaining = board.getSurroundingMines(x, y);
+        for (int ny = Math.max(y - 1, 0); ny <= Math.min(y + 1, height - 1); ny++) {
+            for (int nx = Math.max(x - 1, 0); nx <= Math.min(x + 1, width - 1); nx++) {
+                if ((board.getCell(nx, ny) & (Board.OPENED | Board.FLAGGED)) == Board.FLAGGED
+                        || (known[ny * width + nx] & KNOWN_MINE) != 0) {
+                    remaining--;
+                }
+            }
+        }
+        return remaining;
+    }
+
+    /**
+     * Record the cells in a window mask as proven, and queue the constraints around them.
+     */
+    private void prove(long mask, int originX, int originY, byte proof) {
+        while (mask != 0) {
+            int bit = Long.numberOfTrailingZeros(mask);
+            mask &= mask - 1;
+            int x = originX + bit % WINDOW;
+            int y = originY + bit / WINDOW;
+            int index = y * width + x;
+            if ((known[index] & (KNOWN_SAFE | KNOWN_MINE)) != 0) {
+                continue;
+            }
+            known[index] |= proof;
+            proven = true;
+            if (proof == KNOWN_SAFE) {
+                safeCells.add(index);
+            } else {
+                mineCells.add(index);
+            }
+            for (int ny = Math.max(y - 1, 0); ny <= Math.min(y + 1, height - 1); ny++) {
+                for (int nx = Math.max(x - 1, 0); nx <= Math.min(x + 1, width - 1); nx++) {
+                    enqueue(ny * width + nx);
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,133 @@
+package ga.kylemclean.minesweeper.game;
+
+/**
+ * Plays the moves a {@link Solver} can prove. When it gets stuck, it either gives up or opens
+ * the cell that a {@link ProbabilityEngine} finds least likely to be a mine.
+ */
+public class SolverStrategy implements Strategy {
+
+    /**
+     * The kinds of move {@link #nextMove()} finds: a cell proven safe to open, a cell proven
+     * to be a mine to flag, or a cell to open as a guess.
+     */
+    public static final int SAFE = 0, MINE = 1, GUESS = 2;
+
+    private final boolean guess;
+    private int nodeBudget = ProbabilityEngine.DEFAULT_NODE_BUDGET;
+    private long timeBudget = ProbabilityEngine.DEFAULT_TIME_BUDGET;
+
+    private Board board;
+    private Solver solver;
+    private ProbabilityEngine probabilityEngine;
+    /** The kind of the move last found by {@link #nextMove()}. */
+    private int moveKind;
+
+    /**
+     * @param guess Whether to open the safest cell when nothing can be proven, rather than
+     *              giving up.
+     */
+    public SolverStrategy(boolean guess) {
+        this.guess = guess;
+    }
+
+    /**
+     * Set how much work each guess may take, as in {@link ProbabilityEngine#setBudget(int, long)}.
+     * Simulations that must replay exactly should pass a time budget of 0.
+     */
+    public void setGuessBudget(int nodeBudget, long timeBudget) {
+        this.nodeBudget = nodeBudget;
+        this.timeBudget = timeBudget;
+        if (probabilityEngine != null) {
+            probabilityEngine.setBudget(nodeBudget, timeBudget);
+        }
+    }
+
+    @Override
+    public void start(Board board) {
+        if (board != this.board) {
+            if (solver != null) {
+                solver.dispose();
+            }
+            this.board = board;
+            solver = new Solver(board);
+            // Created on the first guess, since many games never need one.
+            probabilityEngine = null;
+        } else {
+            solver.reset();
+        }
+    }
+
+    /**
+     * Forget everything that was proven, for when a move has been undone.
+     */
+    public void reset() {
+        solver.reset();
+    }
+
+    /**
+     * Find the next move without making it: a cell proven safe, or failing that a cell proven
+     * to be a mine, or failing that, if this strategy guesses, the cell least likely to be a mine.
+     *
+     * @return The index of the cell ({@code y * width + x}), or -1 if there is no move to make.
+     * @see #getMoveKind()
+     */
+    public int nextMove() {
+        solver.solve();
+        int cell = solver.nextSafeCell();
+        if (cell >= 0) {
+            moveKind = SAFE;
+            return cell;
+        }
+        cell = solver.nextMineCell();
+        if (cell >= 0) {
+            moveKind = MINE;
+            return cell;
+        }
+        if (guess) {
+            if (probabilityEngine == null) {
+                probabilityEngine = new ProbabilityEngine(board);
+                probabilityEngine.setBudget(nodeBudget, timeBudget);
+            }
+            probabilityEngine.compute();
+            moveKind = GUESS;
+            return probabilityEngine.getSafestCell();
+        }
+        return -1;
+    }
+
+    /**
+     * @return The kind of the move last found by {@link #nextMove()}: {@link #SAFE},
+     * {@link #MINE} or {@link #GUESS}.
+     */
+    public int getMoveKind() {
+        return moveKind;
+    }
+
+    @Override
+    public boolean move() {
+        int cell = nextMove();
+        if (cell < 0) {
+            return false;
+        }
+        int width = board.getWidth();
+        if (moveKind == MINE) {
+            board.toggleFlag(cell % width, cell / width);
+        } else {
+            board.open(cell % width, cell / width);
+        }
+        return true;
+    }
+
+    /**
+     * Stop following the board.
+     */
+    public void dispose() {
+        if (solver != null) {
+            solver.dispose();
+            solver = null;
+        }
+        board = null;
+        probabilityEngine = null;
+    }
+
+}
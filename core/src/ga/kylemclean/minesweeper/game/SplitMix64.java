@@ -0,0 +1,68 @@
+package ga.kylemclean.minesweeper.game;
+
+import java.util.Random;
+
+/**
+ * The SplitMix64 random number generator: a 64-bit counter stepped by the golden ratio and
+ * passed through a mixing function. Each game gets its own generator from its seed, so a board
+ * can be rebuilt exactly from the seed, the board size and the first cell opened, and no two
+ * threads ever share a generator.
+ * <p>
+ * This is not thread safe. Give each thread its own generator, from its own seed or from
+ * {@link #split()}.
+ */
+public class SplitMix64 extends Random {
+
+    private static final long serialVersionUID = 1L;
+
+    /** The golden ratio as a 64-bit fraction, which the counter is stepped by. */
+    public static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private long state;
+
+    /**
+     * @param seed The seed. Every seed gives an unrelated sequence, including neighbouring seeds.
+     */
+    public SplitMix64(long seed) {
+        super(0);
+        setSeed(seed);
+    }
+
+    @Override
+    public void setSeed(long seed) {
+        // Called by Random's constructor too. Random's own setSeed throws away the Gaussian it
+        // keeps for the next nextGaussian(), which must not outlive a reseed.
+        super.setSeed(seed);
+        // Mixing the seed keeps the sequence of seed s from being the sequence of seed
+        // s - GOLDEN_GAMMA moved along by one.
+        state = mix(seed);
+    }
+
+    @Override
+    public long nextLong() {
+        return mix(state += GOLDEN_GAMMA);
+    }
+
+    @Override
+    protected int next(int bits) {
+        return (int) (nextLong() >>> (64 - bits));
+    }
+
+    /**
+     * Create a new generator whose sequence is independent of this one's, for handing to
+     * another thread.
+     */
+    public SplitMix64 split() {
+        return new SplitMix64(nextLong());
+    }
+
+    /**
+     * The SplitMix64 finalizer, which spreads the bits of a 64-bit value over the whole value.
+     */
+    public static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+}
@@ -0,0 +1,22 @@
+package ga.kylemclean.minesweeper.game;
+
+/**
+ * A way of playing a {@link Board} one move at a time, for simulations and auto-solving.
+ */
+public interface Strategy {
+
+    /**
+     * Get ready to play a board. Called on a cleared board before its first cell is opened.
+     *
+     * @param board The board to play.
+     */
+    void start(Board board);
+
+    /**
+     * Make one move on the board: open, flag or chord a cell.
+     *
+     * @return Whether a move was made, or false if the strategy has no move to make.
+     */
+    boolean move();
+
+}
@@ -0,0 +1,165 @@
+package ga.kylemclean.minesweeper.game;
+
+import com.badlogic.gdx.utils.IntArray;
+
+/**
+ * The moves made on a {@link Board}, so they can be undone, latest first.
+ * <p>
+ * A move is stored as the cells it changed rather than a copy of the board: one int per cell,
+ * the cell's index shifted left by one with the low bit set if its flag was toggled and clear
+ * if it was opened. A flood fill of 100k cells is one run of 100k ints.
+ * <p>
+ * The journal holds at most a fixed number of cells. When it is full, the oldest moves are
+ * dropped to make room. A single move too big to fit empties the journal, as the moves before
+ * it could no longer be undone in order.
+ */
+public class UndoJournal {
+
+    /** The number of cells a journal holds by default, 4 MiB of entries. */
+    public static final int DEFAULT_CAPACITY = 1 << 20;
+
+    private final int capacity;
+    private int[] entries;
+    private int size;
+    /** The end of each move in {@link #entries}. Each move starts where the one before it ends. */
+    private IntArray moveEnds;
+
+    /** The start of the move being recorded. */
+    private int moveStart;
+    /** Whether the move being recorded is dropped, as it didn't fit or the journal was cleared during it. */
+    private boolean discarding;
+
+    public UndoJournal() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity The most cells the journal holds.
+     */
+    public UndoJournal(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        entries = new int[Math.min(capacity, 256)];
+        moveEnds = new IntArray();
+    }
+
+    /**
+     * Start recording a move.
+     */
+    void beginMove() {
+        moveStart = size;
+        discarding = false;
+    }
+
+    /**
+     * Record a change to a cell in the move being recorded.
+     */
+    void add(int entry) {
+        if (discarding) {
+            return;
+        }
+        if (size == capacity && !evictOldest()) {
+            discarding = true;
+            return;
+        }
+        if (size == entries.length) {
+            int[] newEntries = new int[(int) Math.min((long) size * 2, capacity)];
+            System.arraycopy(entries, 0, newEntries, 0, size);
+            entries = newEntries;
+        }
+        entries[size++] = entry;
+    }
+
+    /**
+     * Finish recording a move. A move that changed nothing is not kept.
+     */
+    void endMove() {
+        if (discarding) {
+            clear();
+        } else if (size > moveStart) {
+            moveEnds.add(size);
+        }
+    }
+
+    /**
+     * Drop the oldest moves, at least a quarter of the journal's capacity of them, so that
+     * eviction happens rarely. The move being recorded is never dropped.
+     *
+     * @return Whether any moves were dropped.
+     */
+    private boolean evictOldest() {
+        if (moveEnds.size == 0) {
+            return false;
+        }
+        int drop = 0;
+        int moves = 0;
+        while (moves < moveEnds.size && drop < capacity / 4) {
+            drop = moveEnds.get(moves++);
+        }
+        System.arraycopy(entries, drop, entries, 0, size - drop);
+        size -= drop;
+        moveStart -= drop;
+        moveEnds.removeRange(0, moves - 1);
+        for (int i = 0; i < moveEnds.size; i++) {
+            moveEnds.items[i] -= drop;
+        }
+        return true;
+    }
+
+    /**
+     * Forget every move, including one that is still being recorded.
+     */
+    public void clear() {
+        size = 0;
+        moveStart = 0;
+        moveEnds.clear();
+        discarding = true;
+    }
+
+    /**
+     * @return The number of moves that can be undone.
+     */
+    public int getMoves() {
+        return moveEnds.size;
+    }
+
+    /**
+     * @return The number of cells recorded, over every move.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    int[] getEntries() {
+        return entries;
+    }
+
+    /**
+     * @return The start of the latest move in {@link #getEntries()}.
+     */
+    int getLastMoveStart() {
+        return moveEnds.size > 1 ? moveEnds.get(moveEnds.size - 2) : 0;
+    }
+
+    /**
+     * @return The end of the latest move in {@link #getEntries()}.
+     */
+    int getLastMoveEnd() {
+        return moveEnds.peek();
+    }
+
+    /**
+     * Forget the latest move, once it has been undone.
+     */
+    void removeLastMove() {
+        size = getLastMoveStart();
+        moveEnds.pop();
+    }
+
+}
@@ -0,0 +1,28 @@
+package ga.kylemclean.minesweeper.game;
+
+import com.badlogic.gdx.utils.async.AsyncExecutor;
+
+/**
+ * A shared pool of daemon threads, one per core, for splitting board work across cores.
+ */
+public final class Workers {
+
+    /** The number of threads in the pool. */
+    public static final int THREADS = Math.max(1, Runtime.getRuntime().availableProcessors());
+
+    private static AsyncExecutor executor;
+
+    private Workers() {
+    }
+
+    /**
+     * @return The shared executor, created the first time it is needed.
+     */
+    public static synchronized AsyncExecutor get() {
+        if (executor == null) {
+            executor = new AsyncExecutor(THREADS);
+        }
+        return executor;
+    }
+
+}
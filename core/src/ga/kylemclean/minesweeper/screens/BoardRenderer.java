@@ -0,0 +1,316 @@
+package ga.kylemclean.minesweeper.screens;
+
+import com.badlogic.gdx.Application;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.SpriteCache;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.utils.Disposable;
+
+import java.util.Arrays;
+
+import ga.kylemclean.minesweeper.game.Board;
+import ga.kylemclean.minesweeper.game.BoardListener;
+
+/**
+ * Draws a {@link Board}.
+ * <p>
+ * The board is split into chunks of {@link #CHUNK_SIZE}x{@link #CHUNK_SIZE} cells. Visible
+ * chunks are kept in a {@link SpriteCache} with room for {@link #CACHED_CHUNKS} chunks, and a
+ * chunk is only rebuilt when the board reports that a cell inside it changed, so drawing an
+ * unchanged board costs one draw call per visible chunk.
+ * <p>
+ * When the view is zoomed out too far for its chunks to fit in the cache, the board is drawn at
+ * a coarser level of detail: at level L, a chunk is still {@link #CHUNK_SIZE}x{@link #CHUNK_SIZE}
+ * sprites, but each sprite covers a block of 2^L x 2^L cells and shows the cell in the middle of
+ * it. The level is the lowest at which the visible chunks fit, so a whole board of any size
+ * costs at most {@link #CACHED_CHUNKS} draw calls, and a cell is only left out when it would
+ * be drawn a few pixels across.
+ */
+class BoardRenderer implements BoardListener, Disposable {
+
+    /** The width and height of a chunk in cells. */
+    static final int CHUNK_SIZE = 32;
+    /** The number of chunks that the sprite cache has room for. */
+    static final int CACHED_CHUNKS = 64;
+
+    private Board board;
+    /** The board's size when the chunks were last fitted to it. */
+    private int boardWidth, boardHeight;
+    private int cellSize;
+
+    private CellTextures cellTextures;
+    private int lost;
+    private int pressedX, pressedY;
+
+    private SpriteCache cache;
+    /** The level of detail: each sprite covers 2^level x 2^level cells. */
+    private int level;
+    /** The width and height of a chunk in cells at the current level. */
+    private int chunkCells;
+    private int chunksX, chunksY;
+    /** The cache slot holding each chunk, or -1. */
+    private int[] chunkSlots;
+    /** The chunk held by each cache slot, or -1. */
+    private int[] slotChunks;
+    private boolean[] slotDirty;
+    private long[] slotLastDrawn;
+    private int[] cacheIds;
+    private long frame;
+
+    /** The number of chunks drawn from the cache in the last frame, and the level they were drawn at. */
+    private int chunksDrawn, levelDrawn;
+
+    /**
+     * Create a renderer for a board, and listen to it for changed cells.
+     *
+     * @param board        The board to draw.
+     * @param cellTextures The cell textures.
+     * @param cellSize     The width and height of a cell in world units.
+     */
+    BoardRenderer(Board board, CellTextures cellTextures, int cellSize) {
+        this.board = board;
+        this.cellSize = cellSize;
+        this.cellTextures = cellTextures;
+        pressedX = -1;
+        pressedY = -1;
+
+        fitBoard();
+        board.addListener(this);
+    }
+
+    /**
+     * Lay out the chunks for the board's size, with every cache slot empty. The slots and the
+     * sprite cache are kept when the board has been resized to one needing no more of them.
+     */
+    private void fitBoard() {
+        boardWidth = board.getWidth();
+        boardHeight = board.getHeight();
+        chunkCells = 0;
+        setLevel(0);
+        if (chunkSlots == null || chunkSlots.length < chunksX * chunksY) {
+            chunkSlots = new int[chunksX * chunksY];
+        }
+        Arrays.fill(chunkSlots, -1);
+        int slots = Math.min(CACHED_CHUNKS, chunksX * chunksY);
+        if (slotChunks == null || slotChunks.length < slots) {
+            slotChunks = new int[slots];
+            slotDirty = new boolean[slots];
+            slotLastDrawn = new long[slots];
+            if (cache != null) {
+                cache.dispose();
+            }
+
+            // Create every cache at full size up front, so that any chunk can be rebuilt into any slot.
+            cache = new SpriteCache(slots * CHUNK_SIZE * CHUNK_SIZE, false);
+            cacheIds = new int[slots];
+            for (int slot = 0; slot < slots; slot++) {
+                cache.beginCache();
+                for (int i = 0; i < CHUNK_SIZE * CHUNK_SIZE; i++) {
+                    cache.add(cellTextures.get(0), 0, 0, cellSize, cellSize);
+                }
+                cacheIds[slot] = cache.endCache();
+            }
+        }
+        Arrays.fill(slotChunks, -1);
+        Arrays.fill(slotLastDrawn, 0);
+    }
+
+    /**
+     * Lay out the chunks for a level of detail. The chunks are only laid out again, emptying
+     * every cache slot, if the level changed or fitBoard() asks for it.
+     */
+    private void setLevel(int level) {
+        if (level == this.level && chunkCells != 0) {
+            return;
+        }
+        this.level = level;
+        chunkCells = CHUNK_SIZE << level;
+        chunksX = (board.getWidth() + chunkCells - 1) / chunkCells;
+        chunksY = (board.getHeight() + chunkCells - 1) / chunkCells;
+        if (slotChunks != null) {
+            // There are fewer chunks at any level than at level 0, so the arrays fit.
+            Arrays.fill(chunkSlots, -1);
+            Arrays.fill(slotChunks, -1);
+            Arrays.fill(slotLastDrawn, 0);
+        }
+    }
+
+    /**
+     * Set whether the game has been lost, which reveals mines and wrong flags. No chunks are
+     * rebuilt here: the board reports the mines and wrong flags as changed when it is lost,
+     * and every cell as changed when it is reset.
+     */
+    void setLost(boolean lost) {
+        this.lost = lost ? CellTextures.LOST : 0;
+    }
+
+    /**
+     * Set the cell that the player is pressing. The pressed cell is drawn on top of the
+     * board, so pressing a cell doesn't rebuild its chunk.
+     *
+     * @param x The x-coordinate of the pressed cell, or -1 for none.
+     * @param y The y-coordinate of the pressed cell, or -1 for none.
+     */
+    void setPressedCell(int x, int y) {
+        pressedX = x;
+        pressedY = y;
+    }
+
+    @Override
+    public void cellsChanged(int minX, int minY, int maxX, int maxY) {
+        if (board.getWidth() != boardWidth || board.getHeight() != boardHeight) {
+            // The board was resized, which clears it and reports every cell as changed.
+            fitBoard();
+            return;
+        }
+        for (int chunkY = minY / chunkCells; chunkY <= maxY / chunkCells; chunkY++) {
+            for (int chunkX = minX / chunkCells; chunkX <= maxX / chunkCells; chunkX++) {
+                int slot = chunkSlots[chunkY * chunksX + chunkX];
+                if (slot >= 0) {
+                    slotDirty[slot] = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Draw the part of the board that is inside the camera's view. The batch must not
+     * have been begun.
+     *
+     * @param camera The camera the board is viewed through.
+     * @param batch  The batch used for the pressed cell.
+     */
+    void render(OrthographicCamera camera, SpriteBatch batch) {
+        frame++;
+        float halfViewWidth = camera.viewportWidth * camera.zoom / 2;
+        float halfViewHeight = camera.viewportHeight * camera.zoom / 2;
+        int minX = Math.max(MathUtils.floor((camera.position.x - halfViewWidth) / cellSize), 0);
+        int maxX = Math.min(MathUtils.floor((camera.position.x + halfViewWidth) / cellSize), board.getWidth() - 1);
+        int minY = Math.max(MathUtils.floor((camera.position.y - halfViewHeight) / cellSize), 0);
+        int maxY = Math.min(MathUtils.floor((camera.position.y + halfViewHeight) / cellSize), board.getHeight() - 1);
+
+        int chunksDrawn = 0;
+        batch.setProjectionMatrix(camera.combined);
+        if (minX <= maxX && minY <= maxY) {
+            // The lowest level of detail at which the visible chunks fit in the cache.
+            int level = 0;
+            while (visibleChunks(minX, minY, maxX, maxY, CHUNK_SIZE << level) > slotChunks.length) {
+                level++;
+            }
+            setLevel(level);
+            int minChunkX = minX / chunkCells;
+            int maxChunkX = maxX / chunkCells;
+            int minChunkY = minY / chunkCells;
+            int maxChunkY = maxY / chunkCells;
+            for (int chunkY = minChunkY; chunkY <= maxChunkY; chunkY++) {
+                for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+                    prepareChunk(chunkY * chunksX + chunkX);
+                }
+            }
+            Gdx.gl.glEnable(GL20.GL_BLEND);
+            Gdx.gl.glBlendFunc(GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA);
+            cache.setProjectionMatrix(camera.combined);
+            cache.begin();
+            for (int chunkY = minChunkY; chunkY <= maxChunkY; chunkY++) {
+                for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+                    cache.draw(cacheIds[chunkSlots[chunkY * chunksX + chunkX]]);
+                    chunksDrawn++;
+                }
+            }
+            cache.end();
+            Gdx.gl.glDisable(GL20.GL_BLEND);
+        }
+        if (pressedX >= 0 && pressedY >= 0) {
+            batch.begin();
+            batch.draw(cellTextures.get(board.getCell(pressedX, pressedY) | lost | CellTextures.PRESSED),
+                    pressedX * cellSize, pressedY * cellSize, cellSize, cellSize);
+            batch.end();
+        }
+
+        if (chunksDrawn != this.chunksDrawn || level != levelDrawn) {
+            this.chunksDrawn = chunksDrawn;
+            levelDrawn = level;
+            if (Gdx.app.getLogLevel() >= Application.LOG_DEBUG) {
+                Gdx.app.debug("BoardRenderer", "drawing " + chunksDrawn + " cached chunks per frame at level "
+                        + level + " of detail");
+            }
+        }
+    }
+
+    /**
+     * @return The number of chunks of a size that cover a rectangle of cells.
+     */
+    private static int visibleChunks(int minX, int minY, int maxX, int maxY, int chunkCells) {
+        return (maxX / chunkCells - minX / chunkCells + 1) * (maxY / chunkCells - minY / chunkCells + 1);
+    }
+
+    /**
+     * Make sure a chunk is in the cache and up to date, evicting the least recently drawn
+     * chunk if needed. Chunks drawn this frame are never evicted.
+     *
+     * @param chunk The index of the chunk.
+     */
+    private void prepareChunk(int chunk) {
+        int slot = chunkSlots[chunk];
+        if (slot < 0) {
+            slot = 0;
+            for (int i = 1; i < slotChunks.length; i++) {
+                if (slotLastDrawn[i] < slotLastDrawn[slot]) {
+                    slot = i;
+                }
+            }
+            if (slotChunks[slot] >= 0) {
+                chunkSlots[slotChunks[slot]] = -1;
+            }
+            slotChunks[slot] = chunk;
+            chunkSlots[chunk] = slot;
+            slotDirty[slot] = true;
+        }
+        if (slotDirty[slot]) {
+            buildChunk(chunk, slot);
+            slotDirty[slot] = false;
+        }
+        slotLastDrawn[slot] = frame;
+    }
+
+    /**
+     * Redefine the cache in a slot with the current state of a chunk's cells.
+     */
+    private void buildChunk(int chunk, int slot) {
+        int width = board.getWidth();
+        int height = board.getHeight();
+        int startX = (chunk % chunksX) * chunkCells;
+        int startY = (chunk / chunksX) * chunkCells;
+        int endX = Math.min(startX + chunkCells, width);
+        int endY = Math.min(startY + chunkCells, height);
+        // Each sprite covers a block of cells, cut short at the edge of the board.
+        int block = 1 << level;
+        cache.beginCache(cacheIds[slot]);
+        for (int y = startY; y < endY; y += block) {
+            int blockHeight = Math.min(block, height - y);
+            for (int x = startX; x < endX; x += block) {
+                int blockWidth = Math.min(block, width - x);
+                cache.add(cellTextures.get(board.getCell(x + blockWidth / 2, y + blockHeight / 2) | lost),
+                        x * cellSize, y * cellSize, blockWidth * cellSize, blockHeight * cellSize);
+            }
+        }
+        cache.endCache();
+    }
+
+    /**
+     * @return The number of cached chunks drawn in the last frame.
+     */
+    int getChunksDrawn() {
+        return chunksDrawn;
+    }
+
+    @Override
+    public void dispose() {
+        board.removeListener(this);
+        cache.dispose();
+    }
+
+}
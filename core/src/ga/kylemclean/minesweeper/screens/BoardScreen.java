@@ -0,0 +1,338 @@
+package ga.kylemclean.minesweeper.screens;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.InputProcessor;
+import com.badlogic.gdx.Screen;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas.AtlasRegion;
+import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.utils.Align;
+
+import ga.kylemclean.minesweeper.Minesweeper;
+
+/**
+ * What the game screens have in common: a board of cells seen through the game camera, which
+ * eases towards a target position and zoom, a {@link Hud}, and pressing, chording and panning
+ * with the pointer.
+ * <p>
+ * A cell is pressed when the pointer goes down on it and played when the pointer comes up on
+ * the same cell without panning: a closed cell is opened or flagged, and an opened cell is
+ * chorded. What that does to the board is up to the screen.
+ */
+abstract class BoardScreen implements Screen, InputProcessor {
+
+    /** The longest time in seconds that one step of the camera's movement covers. */
+    private static final float MAX_CAMERA_STEP = 1 / 30f;
+    /** How close in world units and zoom the camera must be to its target to stop there. */
+    private static final float CAMERA_SETTLED_DISTANCE = 0.05f;
+    private static final float CAMERA_SETTLED_ZOOM = 0.0005f;
+    /** How far in pixels the pointer must be dragged before the camera pans. */
+    private static final int PAN_THRESHOLD = 20;
+
+    protected final Minesweeper game;
+    protected final SpriteBatch batch;
+    protected final OrthographicCamera gameCamera, fixedCamera;
+    protected final ShapeRenderer shapeRenderer;
+    protected final BitmapFont font;
+    protected final Hud hud;
+
+    protected final int cellSize = 40;
+    protected final Vector3 gameCameraTargetPosition;
+    protected float gameCameraTargetZoom;
+
+    private final Vector3 touchPos, screenTouchDownPos;
+    private boolean panningCamera;
+    /** The cell the pointer went down on, and whether it was closed or opened. */
+    private int touchedCellX, touchedCellY;
+    private boolean pressingCell, chordingCell;
+
+    /**
+     * @param game A reference to the Game object.
+     */
+    BoardScreen(Minesweeper game) {
+        this.game = game;
+        batch = game.batch;
+        gameCamera = game.gameCamera;
+        fixedCamera = game.fixedCamera;
+        shapeRenderer = game.shapeRenderer;
+
+        // Get assets from game AssetManager, waiting for any that are still loading.
+        game.finishLoadingAssets();
+        font = game.assets.get("ui/arial-32.fnt", BitmapFont.class);
+        hud = new Hud(font);
+
+        gameCameraTargetPosition = new Vector3();
+        touchPos = new Vector3();
+        screenTouchDownPos = new Vector3();
+    }
+
+    /**
+     * @return Whether the cells can be played now.
+     */
+    protected abstract boolean canPlay();
+
+    /**
+     * @return Whether (x, y) is a cell on the board.
+     */
+    protected abstract boolean containsCell(int x, int y);
+
+    /**
+     * @return Whether the cell at (x, y) has been opened.
+     */
+    protected abstract boolean isCellOpened(int x, int y);
+
+    /**
+     * Play a closed cell the player pressed.
+     *
+     * @param button The button that pressed it.
+     */
+    protected abstract void playCell(int x, int y, int button);
+
+    /**
+     * Chord an opened cell the player pressed.
+     */
+    protected abstract void chordCell(int x, int y);
+
+    /**
+     * Show a closed cell as pressed, or stop showing any cell as pressed.
+     *
+     * @param x The x-coordinate of the cell, or -1 for none.
+     * @param y The y-coordinate of the cell, or -1 for none.
+     */
+    protected void setPressedCell(int x, int y) {
+    }
+
+    /**
+     * @return Whether the cell at (x, y) is being pressed.
+     */
+    protected boolean isPressedCell(int x, int y) {
+        return pressingCell && x == touchedCellX && y == touchedCellY;
+    }
+
+    /**
+     * Forget the cell being pressed, for when the game is reset.
+     */
+    protected void releaseCell() {
+        pressingCell = false;
+        chordingCell = false;
+        setPressedCell(-1, -1);
+    }
+
+    /**
+     * @return Whether dragging the pointer pans the camera now.
+     */
+    protected boolean canPan() {
+        return true;
+    }
+
+    /**
+     * @return The world units the camera pans for each pixel the pointer is dragged.
+     */
+    protected float getPanScale() {
+        return gameCamera.zoom;
+    }
+
+    /**
+     * Keep the camera's target position within bounds, after the camera has been panned.
+     */
+    protected void clampCameraTarget() {
+    }
+
+    /**
+     * Snap the camera to its target position and a zoom, for the start of a game.
+     */
+    protected void snapCamera(float zoom) {
+        gameCamera.position.set(gameCameraTargetPosition);
+        gameCamera.zoom = zoom;
+    }
+
+    /**
+     * Interpolate the camera's position and zoom to a target position and zoom.
+     * (gameCameraTargetPosition and gameCameraTargetZoom)
+     * Another frame is asked for until the camera gets there.
+     *
+     * @param delta The change in time in seconds since the last frame.
+     */
+    protected void interpolateCamera(float delta) {
+        // Frames are far apart while nothing moves, so the first step after a pause is cut short.
+        float step = Math.min(delta, MAX_CAMERA_STEP) * 10;
+        gameCamera.position.x += (gameCameraTargetPosition.x - gameCamera.position.x) * step;
+        gameCamera.position.y += (gameCameraTargetPosition.y - gameCamera.position.y) * step;
+        gameCamera.zoom += (gameCameraTargetZoom - gameCamera.zoom) * step;
+        if (Math.abs(gameCameraTargetPosition.x - gameCamera.position.x) < CAMERA_SETTLED_DISTANCE
+                && Math.abs(gameCameraTargetPosition.y - gameCamera.position.y) < CAMERA_SETTLED_DISTANCE
+                && Math.abs(gameCameraTargetZoom - gameCamera.zoom) < CAMERA_SETTLED_ZOOM) {
+            gameCamera.position.x = gameCameraTargetPosition.x;
+            gameCamera.position.y = gameCameraTargetPosition.y;
+            gameCamera.zoom = gameCameraTargetZoom;
+        } else {
+            game.renderScheduler.requestFrame();
+        }
+    }
+
+    /**
+     * Draw the boxes behind the HUD. The values it shows must have been set for this frame.
+     */
+    protected void drawHudBackgrounds() {
+        Gdx.gl20.glEnable(GL20.GL_BLEND);
+        shapeRenderer.setProjectionMatrix(fixedCamera.combined);
+        shapeRenderer.begin(ShapeRenderer.ShapeType.Filled);
+        hud.drawBackgrounds(shapeRenderer);
+        shapeRenderer.end();
+        Gdx.gl20.glDisable(GL20.GL_BLEND);
+    }
+
+    /**
+     * Draw a title over the middle of the screen, with how to play again or leave under it.
+     * The batch must have begun in screen coordinates.
+     */
+    protected void drawGameOver(AtlasRegion title) {
+        batch.draw(title,
+                1280 / 2 - title.originalWidth / 2,
+                720 / 2 - title.originalHeight / 2);
+        drawShadowedText("Press SPACE to play again\nPress ESC to change settings", 120);
+    }
+
+    /**
+     * Draw white text with a black shadow, centred across the screen. The batch must have
+     * begun in screen coordinates.
+     *
+     * @param y The y-coordinate of the top of the text.
+     */
+    protected void drawShadowedText(CharSequence text, float y) {
+        for (int i = 0; i < 2; i++) {
+            font.setColor(i == 0 ? Color.BLACK : Color.WHITE);
+            font.draw(batch, text, 1280 / 2 + i * -2, y + i * 2, 0, Align.center, false);
+        }
+    }
+
+    /**
+     * Quit the game and return the player to the menu.
+     */
+    protected void returnToMenu() {
+        game.setScreen(game.getMenuScreen());
+    }
+
+    @Override
+    public boolean touchDown(int screenX, int screenY, int pointer, int button) {
+        touchPos.set(screenX, screenY, 0);
+        screenTouchDownPos.set(touchPos);
+        gameCamera.unproject(touchPos);
+
+        if (canPlay()) {
+            int cellX = MathUtils.floor(touchPos.x / cellSize);
+            int cellY = MathUtils.floor(touchPos.y / cellSize);
+            // Make sure that the cell coordinates are on the board
+            if (containsCell(cellX, cellY)) {
+                touchedCellX = cellX;
+                touchedCellY = cellY;
+                if (!isCellOpened(cellX, cellY)) {
+                    // Cell is not yet open
+                    pressingCell = true;
+                    setPressedCell(cellX, cellY);
+                } else {
+                    // Cell is already open
+                    chordingCell = true;
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean touchUp(int screenX, int screenY, int pointer, int button) {
+        boolean returnTrue = false;
+
+        // Set touchPos to world coordinates of touchUp position
+        touchPos.set(screenX, screenY, 0);
+        gameCamera.unproject(touchPos);
+
+        if (canPlay() && !panningCamera) {
+            // cellX and cellY represent the boards coordinates of the touched cell
+            int cellX = MathUtils.floor(touchPos.x / cellSize);
+            int cellY = MathUtils.floor(touchPos.y / cellSize);
+
+            if (cellX == touchedCellX && cellY == touchedCellY && containsCell(cellX, cellY)) {
+                if (pressingCell) {
+                    playCell(cellX, cellY, button);
+                    returnTrue = true;
+                } else if (chordingCell) {
+                    chordCell(cellX, cellY);
+                    returnTrue = true;
+                }
+            }
+        }
+        releaseCell();
+        panningCamera = false;
+        return returnTrue;
+    }
+
+    @Override
+    public boolean touchDragged(int screenX, int screenY, int pointer) {
+        if (canPan() && (Math.abs(screenTouchDownPos.x - screenX) >= PAN_THRESHOLD
+                || Math.abs(screenTouchDownPos.y - screenY) >= PAN_THRESHOLD || panningCamera)) {
+            panningCamera = true;
+            float scale = getPanScale();
+            gameCamera.translate((screenTouchDownPos.x - screenX) * scale,
+                    -(screenTouchDownPos.y - screenY) * scale);
+            gameCameraTargetPosition.set(gameCamera.position);
+            clampCameraTarget();
+            screenTouchDownPos.set(screenX, screenY, 0);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean mouseMoved(int screenX, int screenY) {
+        return false;
+    }
+
+    @Override
+    public boolean keyDown(int keycode) {
+        return false;
+    }
+
+    @Override
+    public boolean keyTyped(char character) {
+        return false;
+    }
+
+    @Override
+    public void show() {
+        Gdx.input.setInputProcessor(this);
+    }
+
+    @Override
+    public void resize(int width, int height) {
+
+    }
+
+    @Override
+    public void pause() {
+
+    }
+
+    @Override
+    public void resume() {
+
+    }
+
+    @Override
+    public void hide() {
+
+    }
+
+    @Override
+    public void dispose() {
+
+    }
+
+}
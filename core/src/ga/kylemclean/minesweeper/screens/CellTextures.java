@@ -0,0 +1,74 @@
+package ga.kylemclean.minesweeper.screens;
+
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+
+import ga.kylemclean.minesweeper.game.Board;
+
+/**
+ * The cell textures, looked up once and indexed by a cell's visual state. The visual state
+ * is a cell's state bits as stored by {@link Board}, plus {@link #PRESSED} and {@link #LOST}.
+ */
+class CellTextures {
+
+    /** Set in a cell's visual state while the player is pressing it. */
+    static final int PRESSED = 0x80;
+    /** Set in every cell's visual state once the game has been lost. */
+    static final int LOST = 0x100;
+    /** The number of cell visual states. */
+    private static final int VISUAL_STATES = 0x200;
+
+    private TextureRegion[] regions;
+
+    /**
+     * Look up the cell textures in the atlas and build the visual state table.
+     *
+     * @param cellTextures The atlas containing the cell textures.
+     */
+    CellTextures(TextureAtlas cellTextures) {
+        TextureRegion normalUp = cellTextures.findRegion("cell_normal_up");
+        TextureRegion normalDown = cellTextures.findRegion("cell_normal_down");
+        TextureRegion flagUp = cellTextures.findRegion("cell_flag_up");
+        TextureRegion flagDown = cellTextures.findRegion("cell_flag_down");
+        TextureRegion flagWrong = cellTextures.findRegion("cell_flag_wrong");
+        TextureRegion mine = cellTextures.findRegion("cell_mine");
+        TextureRegion[] numbers = new TextureRegion[9];
+        numbers[0] = cellTextures.findRegion("cell_empty");
+        for (int i = 1; i < numbers.length; i++) {
+            numbers[i] = cellTextures.findRegion("cell" + i);
+        }
+
+        regions = new TextureRegion[VISUAL_STATES];
+        for (int visual = 0; visual < VISUAL_STATES; visual++) {
+            boolean pressed = (visual & PRESSED) != 0;
+            boolean lost = (visual & LOST) != 0;
+            if ((visual & Board.OPENED) != 0) {
+                if ((visual & Board.MINE) != 0) {
+                    regions[visual] = mine;
+                } else {
+                    regions[visual] = numbers[Math.min(visual & Board.SURROUNDING_MINES_MASK, 8)];
+                }
+            } else if ((visual & Board.FLAGGED) != 0) {
+                if (lost && (visual & Board.MINE) == 0) {
+                    regions[visual] = flagWrong;
+                } else {
+                    regions[visual] = pressed ? flagDown : flagUp;
+                }
+            } else if (lost && (visual & Board.MINE) != 0) {
+                // Show all mines on the board
+                regions[visual] = mine;
+            } else {
+                regions[visual] = pressed ? normalDown : normalUp;
+            }
+        }
+    }
+
+    /**
+     * @param visual The visual state of a cell.
+     * @return The texture to draw the cell with.
+     */
+    TextureRegion get(int visual) {
+        return regions[visual];
+    }
+
+}
@@ -0,0 +1,196 @@
+package ga.kylemclean.minesweeper.screens;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Input;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas.AtlasRegion;
+import com.badlogic.gdx.math.MathUtils;
+
+import ga.kylemclean.minesweeper.Minesweeper;
+import ga.kylemclean.minesweeper.game.Board;
+import ga.kylemclean.minesweeper.game.EndlessBoard;
+
+/**
+ * The endless mode, played on an {@link EndlessBoard} that the player can pan across forever.
+ * The game is over when a mine is opened, and the score is the number of cells opened.
+ */
+public class EndlessGameScreen extends BoardScreen {
+
+    /** The number of chunks around the view that are kept expanded. */
+    private static final int KEPT_CHUNKS_MARGIN = 2;
+
+    private CellTextures cellTextures;
+    private AtlasRegion loseRegion;
+
+    private EndlessBoard board;
+
+    private float gameTime;
+    /** Seconds until chunks far from the view are next compacted. */
+    private float compactTimer;
+
+    /**
+     * Initialize the EndlessGameScreen.
+     *
+     * @param game A reference to the Game object.
+     */
+    public EndlessGameScreen(Minesweeper game) {
+        super(game);
+        TextureAtlas cellAtlas = game.assets.get("textures/cells/pack.atlas", TextureAtlas.class);
+        TextureAtlas uiAtlas = game.assets.get("textures/ui/pack.atlas", TextureAtlas.class);
+        cellTextures = new CellTextures(cellAtlas);
+        loseRegion = uiAtlas.findRegion("lose");
+
+        board = new EndlessBoard(MathUtils.random.nextLong(), EndlessBoard.DEFAULT_DENSITY);
+    }
+
+    /**
+     * Start a new game in a new world. The screen is kept for every endless game played.
+     */
+    public void newGame() {
+        resetGame();
+        // Have the camera snap to the target position at first
+        snapCamera(gameCameraTargetZoom);
+    }
+
+    /**
+     * Reset the game with a new world.
+     */
+    private void resetGame() {
+        board.reset(MathUtils.random.nextLong());
+        gameTime = 0;
+        releaseCell();
+        hud.invalidate();
+        gameCameraTargetPosition.set(cellSize / 2, cellSize / 2, 0);
+        gameCameraTargetZoom = 1;
+    }
+
+    @Override
+    public void render(float delta) {
+        Gdx.gl20.glClearColor(0.2f, 0.2f, 0.2f, 1);
+        Gdx.gl20.glClear(GL20.GL_COLOR_BUFFER_BIT);
+
+        if (board.isStarted() && !board.isLost()) {
+            gameTime += delta;
+            // Draw the frame where the timer shows the next second.
+            game.renderScheduler.requestFrameIn((float) Math.floor(gameTime) + 1 - gameTime);
+        }
+
+        interpolateCamera(delta);
+
+        gameCamera.update();
+        fixedCamera.update();
+
+        batch.setProjectionMatrix(gameCamera.combined);
+        batch.begin();
+        drawBoard();
+        batch.end();
+
+        // Draw the score and timer
+        hud.setCounter(board.getCellsOpened(), 1);
+        hud.setTime(gameTime);
+        drawHudBackgrounds();
+
+        batch.setProjectionMatrix(fixedCamera.combined);
+        batch.begin();
+        hud.draw(batch);
+
+        // Draw title if game is over
+        if (board.isLost()) {
+            drawGameOver(loseRegion);
+        }
+        batch.end();
+
+        compactTimer -= delta;
+        if (compactTimer <= 0) {
+            compactTimer = 1;
+            compactChunks();
+        }
+    }
+
+    /**
+     * Draw the cells that are inside the game camera's view.
+     */
+    private void drawBoard() {
+        float halfViewWidth = gameCamera.viewportWidth * gameCamera.zoom / 2;
+        float halfViewHeight = gameCamera.viewportHeight * gameCamera.zoom / 2;
+        int minX = MathUtils.floor((gameCamera.position.x - halfViewWidth) / cellSize);
+        int maxX = MathUtils.floor((gameCamera.position.x + halfViewWidth) / cellSize);
+        int minY = MathUtils.floor((gameCamera.position.y - halfViewHeight) / cellSize);
+        int maxY = MathUtils.floor((gameCamera.position.y + halfViewHeight) / cellSize);
+
+        int lost = board.isLost() ? CellTextures.LOST : 0;
+        for (int y = minY; y <= maxY; y++) {
+            for (int x = minX; x <= maxX; x++) {
+                int visual = board.getCell(x, y) | lost;
+                if (isPressedCell(x, y)) {
+                    visual |= CellTextures.PRESSED;
+                }
+                batch.draw(cellTextures.get(visual), x * cellSize, y * cellSize, cellSize, cellSize);
+            }
+        }
+    }
+
+    /**
+     * Compact the chunks that are well outside the game camera's view.
+     */
+    private void compactChunks() {
+        float halfViewWidth = gameCamera.viewportWidth * gameCamera.zoom / 2;
+        float halfViewHeight = gameCamera.viewportHeight * gameCamera.zoom / 2;
+        int margin = KEPT_CHUNKS_MARGIN * EndlessBoard.CHUNK_SIZE;
+        board.compactChunksOutside(
+                MathUtils.floor((gameCamera.position.x - halfViewWidth) / cellSize) - margin,
+                MathUtils.floor((gameCamera.position.y - halfViewHeight) / cellSize) - margin,
+                MathUtils.floor((gameCamera.position.x + halfViewWidth) / cellSize) + margin,
+                MathUtils.floor((gameCamera.position.y + halfViewHeight) / cellSize) + margin);
+    }
+
+    @Override
+    protected boolean canPlay() {
+        return !board.isLost();
+    }
+
+    @Override
+    protected boolean containsCell(int x, int y) {
+        // The board goes on forever.
+        return true;
+    }
+
+    @Override
+    protected boolean isCellOpened(int x, int y) {
+        return (board.getCell(x, y) & Board.OPENED) != 0;
+    }
+
+    @Override
+    protected void playCell(int x, int y, int button) {
+        if (button == Input.Buttons.LEFT) {
+            board.open(x, y);
+        } else if (button == Input.Buttons.RIGHT) {
+            board.toggleFlag(x, y);
+        }
+    }
+
+    @Override
+    protected void chordCell(int x, int y) {
+        board.chord(x, y);
+    }
+
+    @Override
+    public boolean keyUp(int keycode) {
+        if (keycode == Input.Keys.F2 || board.isLost() && keycode == Input.Keys.SPACE) {
+            resetGame();
+        }
+        if (keycode == Input.Keys.ESCAPE) {
+            returnToMenu();
+        }
+        return false;
+    }
+
+    @Override
+    public boolean scrolled(int amount) {
+        gameCameraTargetZoom += amount / 10F;
+        gameCameraTargetZoom = MathUtils.clamp(gameCameraTargetZoom, 0.5f, 4f);
+        return true;
+    }
+
+}
@@ -0,0 +1,248 @@
+package ga.kylemclean.minesweeper.screens;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.profiling.GLProfiler;
+import com.badlogic.gdx.utils.StringBuilder;
+import com.badlogic.gdx.utils.TimeUtils;
+
+/**
+ * Measures where the time of each frame goes, along with the draw calls it made.
+ * <p>
+ * A frame is split into phases, each timed from the end of the one before it. Every frame's
+ * phase times, total time, {@link SpriteBatch} render calls and {@link GLProfiler} counters
+ * are kept in ring buffers of the last {@link #WINDOW} frames, from which percentiles are
+ * worked out. Everything is allocated up front, so measuring a frame doesn't allocate.
+ * <p>
+ * Nothing is measured until the profiler is enabled. While it is, the GL calls are counted
+ * through a profiling wrapper, which slows them a little.
+ */
+class FrameProfiler {
+
+    /** The number of frames that percentiles are worked out over. */
+    static final int WINDOW = 1024;
+
+    /** The columns after the phases, each holding one number per frame. */
+    private static final String[] COUNTERS = {
+            "total", "batchRenderCalls", "maxSpritesInBatch",
+            "glCalls", "drawCalls", "textureBindings", "shaderSwitches", "vertices"};
+    /** The counter columns that are times in milliseconds, rather than counts. */
+    private static final int TIMED_COUNTERS = 1;
+
+    private final String[] phases;
+    private final int total;
+    /** The samples of each column, indexed by frame number modulo {@link #WINDOW}. */
+    private final float[][] samples;
+    /** A copy of one column, partly sorted to find percentiles. */
+    private final float[] scratch;
+
+    private boolean enabled;
+    private int frames;
+    private long frameStart, phaseStart;
+    private int startRenderCalls;
+
+    /**
+     * @param phases The names of the phases of a frame, in order.
+     */
+    FrameProfiler(String... phases) {
+        this.phases = phases;
+        total = phases.length;
+        samples = new float[phases.length + COUNTERS.length][WINDOW];
+        scratch = new float[WINDOW];
+    }
+
+    /**
+     * Start or stop measuring frames. The frames measured so far are kept.
+     */
+    void setEnabled(boolean enabled) {
+        if (enabled == this.enabled) {
+            return;
+        }
+        this.enabled = enabled;
+        if (enabled) {
+            GLProfiler.enable();
+        } else {
+            GLProfiler.disable();
+        }
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Start measuring a frame.
+     *
+     * @param batch The batch whose render calls are counted.
+     */
+    void beginFrame(SpriteBatch batch) {
+        if (!enabled) {
+            return;
+        }
+        GLProfiler.reset();
+        startRenderCalls = batch.totalRenderCalls;
+        batch.maxSpritesInBatch = 0;
+        int slot = frames % WINDOW;
+        for (int column = 0; column < total; column++) {
+            samples[column][slot] = 0;
+        }
+        frameStart = TimeUtils.nanoTime();
+        phaseStart = frameStart;
+    }
+
+    /**
+     * End a phase of the frame, adding the time since the last phase ended to it.
+     *
+     * @param phase The index of the phase in the names given to the constructor.
+     */
+    void endPhase(int phase) {
+        if (!enabled) {
+            return;
+        }
+        long now = TimeUtils.nanoTime();
+        samples[phase][frames % WINDOW] += (now - phaseStart) / 1e6f;
+        phaseStart = now;
+    }
+
+    /**
+     * Finish measuring a frame.
+     *
+     * @param batch The batch whose render calls are counted.
+     */
+    void endFrame(SpriteBatch batch) {
+        if (!enabled) {
+            return;
+        }
+        int slot = frames % WINDOW;
+        samples[total][slot] = (TimeUtils.nanoTime() - frameStart) / 1e6f;
+        samples[total + 1][slot] = batch.totalRenderCalls - startRenderCalls;
+        samples[total + 2][slot] = batch.maxSpritesInBatch;
+        samples[total + 3][slot] = GLProfiler.calls;
+        samples[total + 4][slot] = GLProfiler.drawCalls;
+        samples[total + 5][slot] = GLProfiler.textureBindings;
+        samples[total + 6][slot] = GLProfiler.shaderSwitches;
+        samples[total + 7][slot] = GLProfiler.vertexCount.total;
+        frames++;
+    }
+
+    /**
+     * Forget the frames measured so far.
+     */
+    void clear() {
+        frames = 0;
+    }
+
+    /**
+     * @return The number of frames measured, including ones no longer in the window.
+     */
+    int getFrames() {
+        return frames;
+    }
+
+    /**
+     * Work out a percentile of a column over the frames in the window.
+     *
+     * @param column     The column: a phase, or a counter after the phases.
+     * @param percentile The percentile, from 0 to 100.
+     * @return The value, or 0 if no frames have been measured.
+     */
+    float getPercentile(int column, float percentile) {
+        int count = Math.min(frames, WINDOW);
+        if (count == 0) {
+            return 0;
+        }
+        System.arraycopy(samples[column], 0, scratch, 0, count);
+        int rank = Math.min((int) (percentile / 100 * count), count - 1);
+        return select(scratch, count, rank);
+    }
+
+    /**
+     * Find the k-th smallest of the first n values by quickselect, reordering them.
+     */
+    private static float select(float[] values, int n, int k) {
+        int left = 0;
+        int right = n - 1;
+        while (left < right) {
+            float pivot = values[(left + right) >>> 1];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (values[i] < pivot) {
+                    i++;
+                }
+                while (values[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    float swap = values[i];
+                    values[i] = values[j];
+                    values[j] = swap;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                break;
+            }
+        }
+        return values[k];
+    }
+
+    /**
+     * Write the p50, p95 and p99 of every column into a string builder, one column a line.
+     */
+    void appendSummary(StringBuilder text) {
+        text.append("Frame times (ms) over ").append(Math.min(frames, WINDOW)).append(" frames: p50 p95 p99");
+        for (int column = 0; column < samples.length; column++) {
+            text.append('\n').append(getColumnName(column));
+            boolean timed = column < total + TIMED_COUNTERS;
+            appendValue(text, getPercentile(column, 50), timed);
+            appendValue(text, getPercentile(column, 95), timed);
+            appendValue(text, getPercentile(column, 99), timed);
+        }
+    }
+
+    private static void appendValue(StringBuilder text, float value, boolean timed) {
+        text.append(' ');
+        if (timed) {
+            // Two decimal places, without going through String.format.
+            int hundredths = Math.round(value * 100);
+            text.append(hundredths / 100).append('.');
+            if (hundredths % 100 < 10) {
+                text.append('0');
+            }
+            text.append(hundredths % 100);
+        } else {
+            text.append((int) value);
+        }
+    }
+
+    private String getColumnName(int column) {
+        return column < total ? phases[column] : COUNTERS[column - total];
+    }
+
+    /**
+     * Write the frames in the window to a CSV file, oldest first, one frame a row.
+     */
+    void writeCsv(FileHandle file) {
+        java.lang.StringBuilder csv = new java.lang.StringBuilder();
+        csv.append("frame");
+        for (int column = 0; column < samples.length; column++) {
+            csv.append(',').append(getColumnName(column));
+        }
+        csv.append('\n');
+        for (int frame = Math.max(frames - WINDOW, 0); frame < frames; frame++) {
+            csv.append(frame);
+            for (int column = 0; column < samples.length; column++) {
+                csv.append(',').append(samples[column][frame % WINDOW]);
+            }
+            csv.append('\n');
+        }
+        file.writeString(csv.toString(), false);
+    }
+
+}
@@ -2,103 +2,173 @@ package ga.kylemclean.minesweeper.screens;
 
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Input;
-import com.badlogic.gdx.InputProcessor;
-import com.badlogic.gdx.Screen;
+import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.GL20;
-import com.badlogic.gdx.graphics.OrthographicCamera;
-import com.badlogic.gdx.graphics.g2d.BitmapFont;
-import com.badlogic.gdx.graphics.g2d.GlyphLayout;
-import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas.AtlasRegion;
 import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Rectangle;
-import com.badlogic.gdx.math.Vector2;
-import com.badlogic.gdx.math.Vector3;
 import com.badlogic.gdx.utils.Align;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.StringBuilder;
+import com.badlogic.gdx.utils.TimeUtils;
+import com.badlogic.gdx.utils.async.AsyncResult;
+import com.badlogic.gdx.utils.async.AsyncTask;
 
-import ga.kylemclean.minesweeper.Minesweeper;
-import ga.kylemclean.minesweeper.game.Cell;
+import java.util.Arrays;
+import java.util.Comparator;
 
-public class GameScreen implements Screen, InputProcessor {
+import ga.kylemclean.minesweeper.Minesweeper;
+import ga.kylemclean.minesweeper.game.Board;
+import ga.kylemclean.minesweeper.game.GameSnapshot;
+import ga.kylemclean.minesweeper.game.GameTracer;
+import ga.kylemclean.minesweeper.game.NoGuessGenerator;
+import ga.kylemclean.minesweeper.game.ReplayWriter;
+import ga.kylemclean.minesweeper.game.SolverStrategy;
+import ga.kylemclean.minesweeper.game.SplitMix64;
+import ga.kylemclean.minesweeper.game.UndoJournal;
+import ga.kylemclean.minesweeper.game.Workers;
+
+public class GameScreen extends BoardScreen {
 
     private enum GameState {
-        NOT_STARTED, PLAYING, PAUSED, WON, LOST
+        NOT_STARTED, GENERATING, PLAYING, PAUSED, WON, LOST
     }
 
-    private Minesweeper game;
-    private SpriteBatch batch;
-    private OrthographicCamera gameCamera, fixedCamera;
-    private ShapeRenderer shapeRenderer;
+    /** The cells of an empty region opened between checks of the reveal's time budget. */
+    static final int REVEAL_STEP_CELLS = 4096;
+    /** The time in nanoseconds that revealing an empty region may take each frame. */
+    static final long REVEAL_FRAME_BUDGET = 4000000;
+    /** The most replay logs kept in the replays folder. The oldest go as new games start. */
+    private static final int MAX_REPLAYS = 100;
+
+    // The phases of a frame, as the frame profiler times them.
+    private static final int PHASE_CLEAR = 0;
+    private static final int PHASE_UPDATE = 1;
+    private static final int PHASE_CAMERA = 2;
+    private static final int PHASE_BOARD = 3;
+    private static final int PHASE_SHAPES = 4;
+    private static final int PHASE_TEXT = 5;
+    /** The frames between updates of the frame profiler's overlay. */
+    private static final int PROFILE_OVERLAY_INTERVAL = 30;
 
     private TextureAtlas cellTextures, uiTextures;
-    private BitmapFont font;
-
-    private Vector3 gameCameraTargetPosition;
-    private float gameCameraTargetZoom;
 
-    private Vector3 touchPos, screenTouchDownPos;
-    private boolean panningCamera;
     private float defaultZoom;
 
-    private int cellSize = 40;
     private int boardHeight;
     private int boardWidth;
     private Rectangle boardWorldRectangle, zoomRectangle;
-    private int mines;
-    private Cell[][] board;
-    private Vector2 pressingCell;
-    private Vector2 chordingCell;
-    private int cellsFlagged;
-    private int cellsOpened;
-
+    private Board board;
+
+    private BoardRenderer boardRenderer;
+    /** Finds the hints and the auto-solver's moves. */
+    private SolverStrategy solverStrategy;
+    /** The player's moves since the first, which can be undone. */
+    private UndoJournal undoJournal;
+    /** Whether the board is generated to be solvable without guessing, rather than at random. */
+    private boolean noGuess;
+    /** Searches for no-guess boards, kept for later games of the same size. Null until needed. */
+    private NoGuessGenerator noGuessGenerator;
+    /** The first cell the player opened, while a no-guess board is being generated. */
+    private int firstCellX, firstCellY;
+    /** The index of the cell being shown as a hint, or -1, and the kind of move it is. */
+    private int hintCell, hintKind;
+    private boolean autoSolving;
+    private AtlasRegion winRegion, loseRegion;
+
+    /** The seed the board is generated from, which rebuilds it along with the first cell opened. */
+    private long seed;
+    /** Generates the board from the seed. */
+    private SplitMix64 random;
+    /** Records the moves of the current game, or null before it starts or where files can't be written. */
+    private ReplayWriter replayWriter;
+    /** The copy of the game that is saved when the app is paused, created the first time. */
+    private GameSnapshot snapshot;
+    /** The save being written in the background, or null. */
+    private AsyncResult<Void> snapshotWrite;
     private GameState gameState;
     private GameState gameStateBeforePause;
     private float gameTime;
 
-    private GlyphLayout minesLayout, timeLayout;
-    private Vector2 minesDisplayPosition, timeDisplayPosition;
+    /** Text drawn over the board, built here so that it doesn't allocate. */
+    private StringBuilder hudText;
+
+    private FrameProfiler frameProfiler;
+    /** The frame profiler's percentiles, as last shown. */
+    private StringBuilder profileText;
 
     /**
-     * Initialize the GameScreen.
+     * Initialize the GameScreen. The screen is kept for every game played, each set up with
+     * {@link #newGame(int, int, int, boolean, long)} or {@link #resumeGame(GameSnapshot)}
+     * before the screen is shown.
      *
-     * @param game        A reference to the Game object.
-     * @param boardWidth  The width of the board in cells.
-     * @param boardHeight The height of the board in cells.
-     * @param mines       The number of mines to be generated on the board.
+     * @param game A reference to the Game object.
      */
-    public GameScreen(Minesweeper game, int boardWidth, int boardHeight, int mines) {
-        this.game = game;
-        batch = this.game.batch;
-        gameCamera = this.game.gameCamera;
-        fixedCamera = this.game.fixedCamera;
-        shapeRenderer = this.game.shapeRenderer;
-
-        // Get assets from game AssetManager.
+    public GameScreen(Minesweeper game) {
+        super(game);
         cellTextures = game.assets.get("textures/cells/pack.atlas", TextureAtlas.class);
         uiTextures = game.assets.get("textures/ui/pack.atlas", TextureAtlas.class);
-        font = game.assets.get("ui/arial-32.fnt", BitmapFont.class);
+        winRegion = uiTextures.findRegion("win");
+        loseRegion = uiTextures.findRegion("lose");
+
+        boardWorldRectangle = new Rectangle();
+        zoomRectangle = new Rectangle();
+        undoJournal = new UndoJournal();
+        random = new SplitMix64(0);
 
-        gameCameraTargetPosition = new Vector3();
+        hudText = new StringBuilder(64);
 
-        Gdx.input.setInputProcessor(this);
-        touchPos = new Vector3();
-        screenTouchDownPos = new Vector3();
+        frameProfiler = new FrameProfiler("clear", "update", "camera", "board", "shapes", "text");
+        profileText = new StringBuilder(1024);
+    }
+
+    /**
+     * Set up a new game. The board and what is built around it are kept from the last game,
+     * and only grow if this board is bigger than any before it.
+     *
+     * @param boardWidth  The width of the board in cells.
+     * @param boardHeight The height of the board in cells.
+     * @param mines       The number of mines to be generated on the board.
+     * @param noGuess     Whether to generate a board that can be solved without guessing.
+     * @param seed        The seed to generate the board from.
+     */
+    public void newGame(int boardWidth, int boardHeight, int mines, boolean noGuess, long seed) {
+        setUpGame(boardWidth, boardHeight, mines, noGuess, seed);
+        deleteSnapshot();
+    }
 
+    /**
+     * Set up a new game like {@link #newGame(int, int, int, boolean, long)}, keeping any
+     * saved game.
+     */
+    private void setUpGame(int boardWidth, int boardHeight, int mines, boolean noGuess, long seed) {
+        if (board == null) {
+            board = new Board(boardWidth, boardHeight, mines);
+            boardRenderer = new BoardRenderer(board, new CellTextures(cellTextures), cellSize);
+            solverStrategy = new SolverStrategy(true);
+            solverStrategy.start(board);
+            board.setJournal(undoJournal);
+        } else if (boardWidth != this.boardWidth || boardHeight != this.boardHeight || mines != board.getMines()) {
+            // The renderer and the solver strategy follow the board's new size.
+            board.resize(boardWidth, boardHeight, mines);
+        }
         this.boardWidth = boardWidth;
         this.boardHeight = boardHeight;
-        this.mines = mines;
 
-        board = new Cell[this.boardWidth][this.boardHeight];
-        createCells(this.boardWidth, this.boardHeight);
-        pressingCell = null;
-        chordingCell = null;
-        cellsFlagged = 0;
-        cellsOpened = 0;
+        this.noGuess = noGuess;
+        if (noGuess && (noGuessGenerator == null || noGuessGenerator.getWidth() != boardWidth
+                || noGuessGenerator.getHeight() != boardHeight || noGuessGenerator.getMines() != mines)) {
+            if (noGuessGenerator != null) {
+                noGuessGenerator.dispose();
+            }
+            noGuessGenerator = new NoGuessGenerator(boardWidth, boardHeight, mines);
+        }
 
-        boardWorldRectangle = new Rectangle(0, 0, boardWidth * cellSize, boardHeight * cellSize);
-        zoomRectangle = new Rectangle(0, 0, boardWidth * cellSize, boardHeight * cellSize);
+        boardWorldRectangle.set(0, 0, boardWidth * cellSize, boardHeight * cellSize);
+        zoomRectangle.set(0, 0, boardWidth * cellSize, boardHeight * cellSize);
         // Set rectangle to 16:9 aspect ratio.
         if (zoomRectangle.getAspectRatio() >= (16F / 9F)) {
             zoomRectangle.height = (9F / 16F) * zoomRectangle.width;
@@ -112,123 +182,190 @@ public class GameScreen implements Screen, InputProcessor {
         zoomRectangle.x = -((zoomRectangle.width - (boardWidth * cellSize / 2)) / 2);
         zoomRectangle.y = -((zoomRectangle.height - (boardHeight * cellSize / 2)) / 2);
         gameCameraTargetPosition.set(boardWidth * cellSize / 2, boardHeight * cellSize / 2, 0);
-        // Have the camera snap to the target position at first
-        gameCamera.position.set(gameCameraTargetPosition.cpy());
-        //fixedCamera.position.set(gameCamera.position.cpy());
-        // Zoom in at first
-        gameCamera.zoom = 0.5f;
+        // Have the camera snap to the target position at first, zoomed in
+        snapCamera(0.5f);
         gameCameraTargetZoom = zoomRectangle.width / 1280;
         defaultZoom = gameCameraTargetZoom;
 
-        gameState = GameState.NOT_STARTED;
-        gameTime = 0;
-
-        minesLayout = new GlyphLayout();
-        timeLayout = new GlyphLayout();
-        minesDisplayPosition = new Vector2(24, 720 - 24);
-        timeDisplayPosition = new Vector2(1280 - 24, 720 - 24);
+        hud.invalidate();
+        resetGame(seed);
     }
 
     /**
-     * Create the cell objects.
+     * Set up a saved game. If its cells can't be loaded, a new game of the same size is
+     * started instead.
      *
-     * @param boardWidth  The width of the board.
-     * @param boardHeight The height of the board.
+     * @param snapshot The header of the saved game, from {@link GameSnapshot#readHeader(FileHandle)}.
      */
-    private void createCells(int boardWidth, int boardHeight) {
-        for (int y = 0; y < boardHeight; y++) {
-            for (int x = 0; x < boardWidth; x++) {
-                board[x][y] = new Cell(
-                        cellTextures.findRegion("cell_normal_up"));
-            }
+    public void resumeGame(GameSnapshot snapshot) {
+        setUpGame(snapshot.getWidth(), snapshot.getHeight(), snapshot.getMines(),
+                snapshot.isNoGuess(), snapshot.getSeed());
+        if (snapshot.restore(getSnapshotFile(), board)) {
+            gameState = GameState.PLAYING;
+            gameTime = snapshot.getTime() / 1000f;
+        } else {
+            Gdx.app.error("GameScreen", "could not load the saved game");
         }
+        // The game is saved again when the app is paused, so a save that was resumed, or
+        // couldn't be, must not be offered again.
+        deleteSnapshot();
+    }
+
+    /**
+     * @return The file the game in progress is saved to when the app is paused.
+     */
+    static FileHandle getSnapshotFile() {
+        return Gdx.files.local("saves/game.snapshot");
     }
 
     /**
-     * Fills the board with mines.
-     * Mines will not be generated in a 3x3 space around the cell the user clicked.
+     * Generate the board around the first cell the player opened, and open it. For a no-guess
+     * board, generation runs in the background and the cell is opened once it finishes.
      *
-     * @param amount   The amount of mines to create on the board.
-     * @param initialX The x position on the board of the first cell the user clicked.
-     * @param initialY The y position on the board of the first cell the user clicked.
+     * @param x The x-coordinate of the first cell opened.
+     * @param y The y-coordinate of the first cell opened.
      */
-    private void generateMines(int amount, int initialX, int initialY) {
-        for (int m = 0; m < amount; ) {
-            int randX = MathUtils.random(boardWidth - 1);
-            int randY = MathUtils.random(boardHeight - 1);
-            if (!board[randX][randY].isMine && !(
-                    (randX >= initialX - 1 && randX <= initialX + 1) &&
-                            (randY >= initialY - 1 && randY <= initialY + 1))) {
-                // Set as a mine as long as it isn't already a mine and it is
-                // not in a 3x3 space around the cell the user clicked.
-                board[randX][randY].isMine = true;
-                m++;
-            }
+    private void startGame(int x, int y) {
+        if (noGuess) {
+            firstCellX = x;
+            firstCellY = y;
+            noGuessGenerator.start(x, y, seed);
+            gameState = GameState.GENERATING;
+            return;
         }
+        random.setSeed(seed);
+        board.generate(x, y, random);
+        startRecording();
+        gameState = GameState.PLAYING;
+        openCell(x, y);
+        // The board was generated around the first cell, so opening it can't be undone.
+        undoJournal.clear();
     }
 
     /**
-     * Generates the labels for each cell based on their surrounding mines.
+     * Start playing once the no-guess generator has finished, on the board it found. If it
+     * gave up, the board is generated from the original seed instead.
      */
-    private void generateCellLabels() {
-        for (int y = 0; y < boardHeight; y++) {
-            for (int x = 0; x < boardWidth; x++) {
-                if (!board[x][y].isMine) {
-                    int surroundingMines = 0;
-                    for (int dy = -1; dy <= 1; dy++) {
-                        for (int dx = -1; dx <= 1; dx++) {
-                            if (x + dx >= 0 && y + dy >= 0 &&
-                                    x + dx < boardWidth && y + dy < boardHeight) {
-                                if (board[x + dx][y + dy].isMine) {
-                                    surroundingMines++;
-                                }
-                            }
-                        }
-                    }
-                    board[x][y].surroundingMines = surroundingMines;
-                }
+    private void checkGenerated() {
+        if (noGuessGenerator.isRunning()) {
+            return;
+        }
+        if (noGuessGenerator.isFound()) {
+            seed = noGuessGenerator.getSeed();
+        }
+        random.setSeed(seed);
+        board.generate(firstCellX, firstCellY, random);
+        startRecording();
+        Gdx.app.log("GameScreen", "no-guess generation tried " + noGuessGenerator.getAttempts()
+                + " boards at " + (int) noGuessGenerator.getBoardsPerSecondPerCore() + " boards/s/core");
+        gameState = GameState.PLAYING;
+        openCell(firstCellX, firstCellY);
+        undoJournal.clear();
+    }
+
+    /**
+     * Start a replay log for the game that was just generated, in the local replays folder,
+     * and delete the oldest logs beyond {@link #MAX_REPLAYS}.
+     */
+    private void startRecording() {
+        stopRecording();
+        if (Gdx.files.isLocalStorageAvailable()) {
+            replayWriter = new ReplayWriter(Gdx.files.local("replays/" + TimeUtils.millis() + ".replay"),
+                    boardWidth, boardHeight, board.getMines(), seed);
+            deleteOldReplays();
+        }
+    }
+
+    /**
+     * Delete the oldest replay logs, so that at most {@link #MAX_REPLAYS} are kept.
+     */
+    private static void deleteOldReplays() {
+        FileHandle[] replays = Gdx.files.local("replays").list(".replay");
+        if (replays.length <= MAX_REPLAYS) {
+            return;
+        }
+        // The logs are named by the time their game started, so the oldest sort first.
+        Arrays.sort(replays, new Comparator<FileHandle>() {
+            @Override
+            public int compare(FileHandle a, FileHandle b) {
+                String nameA = a.name();
+                String nameB = b.name();
+                return nameA.length() != nameB.length() ? nameA.length() - nameB.length() : nameA.compareTo(nameB);
             }
+        });
+        for (int i = 0; i < replays.length - MAX_REPLAYS; i++) {
+            replays[i].delete();
+        }
+    }
+
+    /**
+     * Write out and close the replay log of the current game, if there is one.
+     */
+    private void stopRecording() {
+        if (replayWriter != null) {
+            replayWriter.flush();
+            replayWriter = null;
+        }
+    }
+
+    /**
+     * Add a move to the replay log, at the current game time.
+     */
+    private void recordMove(int action, int x, int y) {
+        if (replayWriter != null) {
+            replayWriter.record(action, y * boardWidth + x, (long) (gameTime * 1000));
         }
     }
 
     /**
-     * Open the cell at the specified location. If the cell has no surrounding mines,
-     * open all surrounding cells as well.
+     * Open the cell at the specified location, then win or lose the game if
+     * that finished it.
      *
      * @param x The x-coordinate of the cell to open.
      * @param y The y-coordinate of the cell to open.
      */
     private void openCell(int x, int y) {
-        if (!board[x][y].opened && !board[x][y].flagged) {
-            board[x][y].opened = true;
-            if (!board[x][y].isMine) {
-                if (board[x][y].surroundingMines > 0) {
-                    board[x][y].texture = cellTextures
-                            .findRegion("cell" + board[x][y].surroundingMines);
-                } else {
-                    // There are no surrounding mines
-                    board[x][y].texture = cellTextures
-                            .findRegion("cell_empty");
-                    for (int dy = -1; dy <= 1; dy++) {
-                        for (int dx = -1; dx <= 1; dx++) {
-                            if (x + dx >= 0 && y + dy >= 0 &&
-                                    x + dx < boardWidth && y + dy < boardHeight) {
-                                openCell(x + dx, y + dy);
-                            }
-                        }
-                    }
-                }
-                cellsOpened++;
-                if (cellsOpened == boardWidth * boardHeight - mines) {
-                    winGame();
-                }
-            } else {
-                board[x][y].texture = cellTextures.findRegion("cell_mine");
-                loseGame();
-            }
+        GameTracer tracer = GameTracer.get();
+        Object event = tracer != null ? tracer.begin(GameTracer.OPEN_CELL) : null;
+        recordMove(ReplayWriter.OPEN, x, y);
+        // A large empty region is revealed over the next frames by continueReveal().
+        int opened = board.openGradually(x, y, REVEAL_STEP_CELLS);
+        checkGameOver();
+        if (event != null) {
+            tracer.end(event, board, opened);
+        }
+    }
+
+    /**
+     * Open more of the empty region being revealed, for as long as the frame budget allows,
+     * and win the game if that finishes it.
+     */
+    private void continueReveal() {
+        continueReveal(board);
+        if (!board.isOpening()) {
+            checkGameOver();
         }
     }
 
+    /**
+     * Open the rest of the empty region being revealed on a board at once, for when the game
+     * can't wait for the following frames.
+     */
+    static void finishReveal(Board board) {
+        board.continueOpening(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Open more of the empty region being revealed on a board, a step at a time, until it is
+     * finished or the frame budget has run out.
+     */
+    static void continueReveal(Board board) {
+        long start = TimeUtils.nanoTime();
+        do {
+            board.continueOpening(REVEAL_STEP_CELLS);
+        } while (board.isOpening() && TimeUtils.nanoTime() - start < REVEAL_FRAME_BUDGET);
+    }
+
     /**
      * Flag or unflag the cell at the specified location.
      *
@@ -236,16 +373,10 @@ public class GameScreen implements Screen, InputProcessor {
      * @param y The y-coordinate of the cell to (un)flag.
      */
     private void toggleFlagCell(int x, int y) {
-        if (!board[x][y].opened) {
-            if (!board[x][y].flagged) {
-                board[x][y].flagged = true;
-                board[x][y].texture = cellTextures.findRegion("cell_flag_up");
-                cellsFlagged++;
-            } else {
-                board[x][y].flagged = false;
-                board[x][y].texture = cellTextures.findRegion("cell_normal_up");
-                cellsFlagged--;
-            }
+        // Flags go on once the board exists, so that every move can be replayed on it.
+        if (board.isGenerated()) {
+            recordMove(ReplayWriter.FLAG, x, y);
+            board.toggleFlag(x, y);
         }
     }
 
@@ -255,38 +386,55 @@ public class GameScreen implements Screen, InputProcessor {
      * @param cellX The x-coordinate of the cell to chord.
      * @param cellY The y-coordinate of the cell to chord.
      */
-    private void chordCell(int cellX, int cellY) {
-        int surroundingFlags = 0;
-        int surroundingMines = board[cellX][cellY].surroundingMines;
-        for (int dy = -1; dy < 2; dy++) {
-            for (int dx = -1; dx < 2; dx++) {
-                if (!(dx == 0 && dy == 0)) { // Don't check the chording cell
-                    // Make sure the cell we are checking is on the board
-                    if (cellX + dx >= 0 && cellY + dy >= 0 &&
-                        cellX + dx < boardWidth && cellY + dy < boardHeight) {
-                        if (board[cellX + dx][cellY + dy].flagged) {
-                            surroundingFlags++;
-                        }
-                    }
-                }
-            }
+    @Override
+    protected void chordCell(int cellX, int cellY) {
+        GameTracer tracer = GameTracer.get();
+        Object event = tracer != null ? tracer.begin(GameTracer.CHORD_CELL) : null;
+        recordMove(ReplayWriter.CHORD, cellX, cellY);
+        int opened = board.chord(cellX, cellY);
+        checkGameOver();
+        if (event != null) {
+            tracer.end(event, board, opened);
         }
+    }
 
-        // If there are the right amount of flags, open the surrounding cells
-        if (surroundingFlags == surroundingMines) {
-            for (int dy = -1; dy < 2; dy++) {
-                for (int dx = -1; dx < 2; dx++) {
-                    if (!(dx == 0 && dy == 0)) { // Don't check the chording cell
-                        // Make sure the cell we are checking is on the board
-                        if (cellX + dx >= 0 && cellY + dy >= 0 &&
-                                cellX + dx < boardWidth && cellY + dy < boardHeight) {
-                            if (!board[cellX + dx][cellY + dy].flagged) {
-                                openCell(cellX + dx, cellY + dy);
-                            }
-                        }
-                    }
-                }
-            }
+    /**
+     * Show the player a cell that can be proven safe, or failing that a cell that can be
+     * proven to be a mine, or failing that the cell least likely to be a mine.
+     */
+    private void showHint() {
+        hintCell = solverStrategy.nextMove();
+        hintKind = solverStrategy.getMoveKind();
+    }
+
+    /**
+     * Make one move for the player: open a cell that can be proven safe, or flag a cell that
+     * can be proven to be a mine, or failing that open the cell least likely to be a mine.
+     */
+    private void autoSolveStep() {
+        if (gameState == GameState.NOT_STARTED) {
+            startGame(boardWidth / 2, boardHeight / 2);
+            return;
+        }
+        // The move goes through the screen, so that it is recorded and can end the game.
+        int cell = solverStrategy.nextMove();
+        if (cell < 0) {
+            autoSolving = false;
+        } else if (solverStrategy.getMoveKind() == SolverStrategy.MINE) {
+            toggleFlagCell(cell % boardWidth, cell / boardWidth);
+        } else {
+            openCell(cell % boardWidth, cell / boardWidth);
+        }
+    }
+
+    /**
+     * Win or lose the game if the board says it is over.
+     */
+    private void checkGameOver() {
+        if (board.isLost()) {
+            loseGame();
+        } else if (board.isWon()) {
+            winGame();
         }
     }
 
@@ -295,6 +443,8 @@ public class GameScreen implements Screen, InputProcessor {
      */
     private void winGame() {
         gameState = GameState.WON;
+        stopRecording();
+        deleteSnapshot();
     }
 
     /**
@@ -302,249 +452,273 @@ public class GameScreen implements Screen, InputProcessor {
      */
     private void loseGame() {
         gameState = GameState.LOST;
-        // Show all mines on the board
-        for (int y = 0; y < boardHeight; y++) {
-            for (int x = 0; x < boardWidth; x++) {
-                if (board[x][y].isMine && !board[x][y].flagged) {
-                    board[x][y].texture = cellTextures.findRegion("cell_mine");
-                }
-                if (!board[x][y].isMine && board[x][y].flagged) {
-                    board[x][y].texture = cellTextures.findRegion("cell_flag_wrong");
-                }
-            }
+        // The losing move can still be undone, so the replay log is kept open.
+        if (replayWriter != null) {
+            replayWriter.flush();
         }
+        // Show all mines on the board
+        boardRenderer.setLost(true);
+        // Resuming a save from before the losing move would take it back.
+        deleteSnapshot();
     }
 
     /**
-     * Reset the game.
+     * Reset the game, with a new random seed.
      */
     private void resetGame() {
-        createCells(boardWidth, boardHeight);
-        cellsFlagged = 0;
-        cellsOpened = 0;
+        resetGame(MathUtils.random.nextLong());
+        deleteSnapshot();
+    }
+
+    /**
+     * Reset the game.
+     *
+     * @param seed The seed to generate the next board from.
+     */
+    private void resetGame(long seed) {
+        if (noGuessGenerator != null) {
+            noGuessGenerator.cancel();
+        }
+        stopRecording();
+        board.reset();
+        solverStrategy.start(board);
+        this.seed = seed;
+        hintCell = -1;
+        autoSolving = false;
         gameState = GameState.NOT_STARTED;
         gameTime = 0;
-        pressingCell = null;
-        chordingCell = null;
+        releaseCell();
+        boardRenderer.setLost(false);
     }
 
     @Override
     public void render(float delta) {
+        frameProfiler.beginFrame(batch);
         Gdx.gl20.glClearColor(0.2f, 0.2f, 0.2f, 1);
         Gdx.gl20.glClear(GL20.GL_COLOR_BUFFER_BIT);
+        frameProfiler.endPhase(PHASE_CLEAR);
 
         if (gameState == GameState.PLAYING) {
             gameTime += delta;
+            // Draw the frame where the timer shows the next second.
+            game.renderScheduler.requestFrameIn((float) Math.floor(gameTime) + 1 - gameTime);
+        }
+
+        if (gameState == GameState.GENERATING) {
+            checkGenerated();
+        }
+        if (replayWriter != null) {
+            replayWriter.flushIfDue();
+        }
+
+        if (board.isOpening()) {
+            continueReveal();
+        } else if (autoSolving && gameState != GameState.GENERATING) {
+            if (gameState == GameState.PLAYING || gameState == GameState.NOT_STARTED) {
+                autoSolveStep();
+                hintCell = -1;
+            } else {
+                autoSolving = false;
+            }
+        }
+        if (gameState == GameState.GENERATING || board.isOpening() || autoSolving) {
+            // These carry on over the next frames.
+            game.renderScheduler.requestFrame();
         }
+        frameProfiler.endPhase(PHASE_UPDATE);
 
         interpolateCamera(delta);
 
         gameCamera.update();
         fixedCamera.update();
+        frameProfiler.endPhase(PHASE_CAMERA);
 
-        batch.setProjectionMatrix(gameCamera.combined);
-        batch.begin();
-        for (int y = 0; y < boardHeight; y++) {
-            for (int x = 0; x < boardWidth; x++) {
-                batch.draw(board[x][y].texture, x * cellSize, y * cellSize, cellSize, cellSize);
+        boardRenderer.render(gameCamera, batch);
+        frameProfiler.endPhase(PHASE_BOARD);
+
+        // Outline the hint cell until it has been opened or flagged
+        if (hintCell >= 0 && (board.isOpened(hintCell % boardWidth, hintCell / boardWidth)
+                || board.isFlagged(hintCell % boardWidth, hintCell / boardWidth))) {
+            hintCell = -1;
+        }
+        if (hintCell >= 0) {
+            shapeRenderer.setProjectionMatrix(gameCamera.combined);
+            shapeRenderer.begin(ShapeRenderer.ShapeType.Line);
+            if (hintKind == SolverStrategy.MINE) {
+                shapeRenderer.setColor(Color.RED);
+            } else if (hintKind == SolverStrategy.SAFE) {
+                shapeRenderer.setColor(Color.GREEN);
+            } else {
+                // A guess
+                shapeRenderer.setColor(Color.YELLOW);
             }
+            shapeRenderer.rect((hintCell % boardWidth) * cellSize + 2, (hintCell / boardWidth) * cellSize + 2,
+                    cellSize - 4, cellSize - 4);
+            shapeRenderer.end();
         }
-        batch.end();
 
-        // Draw rectangles behind the mines counter and timer
-        Gdx.gl20.glEnable(GL20.GL_BLEND);
-        shapeRenderer.setProjectionMatrix(fixedCamera.combined);
-        shapeRenderer.begin(ShapeRenderer.ShapeType.Filled);
-        shapeRenderer.setColor(0.2f, 0.2f, 0.2f, 0.75f);
-        shapeRenderer.rect(minesDisplayPosition.x - 8, minesDisplayPosition.y + 8,
-                minesLayout.width + 8 * 2, -minesLayout.height - 8 * 2);
-        shapeRenderer.rect(timeDisplayPosition.x + 8, timeDisplayPosition.y + 8,
-                -timeLayout.width - 8 * 2, -timeLayout.height - 8 * 2);
-        shapeRenderer.end();
-        Gdx.gl20.glDisable(GL20.GL_BLEND);
+        // Draw the mines remaining and time elapsed
+        hud.setCounter(board.getMines() - board.getCellsFlagged(), 3);
+        hud.setTime(gameTime);
+        drawHudBackgrounds();
+        frameProfiler.endPhase(PHASE_SHAPES);
 
         batch.setProjectionMatrix(fixedCamera.combined);
         batch.begin();
-        // Draw mines remaining
-        minesLayout.setText(font, ((mines - cellsFlagged) < 100 ? "0" : "") +
-                ((mines - cellsFlagged) < 10 ? "0" : "") + (mines - cellsFlagged));
-        font.draw(batch, minesLayout,
-                minesDisplayPosition.x, minesDisplayPosition.y);
-        // Draw time elapsed
-        timeLayout.setText(font, (int) gameTime / 60 + ":" + ((int) gameTime % 60 < 10 ? "0" : "") + (int) gameTime % 60);
-        font.draw(batch, timeLayout,
-        /* right aligned */timeDisplayPosition.x - timeLayout.width, timeDisplayPosition.y);
-
+        hud.draw(batch);
 
         // Draw title if game is over
         if (gameState == GameState.WON || gameState == GameState.LOST) {
-            if (gameState == GameState.WON) {
-                batch.draw(uiTextures.findRegion("win"),
-                        1280 / 2 - uiTextures.findRegion("win").originalWidth / 2,
-                        720 / 2 - uiTextures.findRegion("win").originalHeight / 2);
-            } else if (gameState == GameState.LOST) {
-                batch.draw(uiTextures.findRegion("lose"),
-                        1280 / 2 - uiTextures.findRegion("lose").originalWidth / 2,
-                        720 / 2 - uiTextures.findRegion("lose").originalHeight / 2);
-            }
-            for (int i = 0; i < 2; i++) {
-                if (i == 0) {
-                    font.setColor(Color.BLACK);
-                } else {
-                    font.setColor(Color.WHITE);
-                }
-                font.draw(
-                        batch, "Press SPACE to play again\nPress ESC to change settings",
-                        1280 / 2 + i * -2, 120 + i * 2, 0, Align.center, false);
-            }
+            drawGameOver(gameState == GameState.WON ? winRegion : loseRegion);
+            // Draw the seed, so that the board can be shared
+            hudText.setLength(0);
+            hudText.append("Seed ").append(seed);
+            drawShadowedText(hudText, 180);
+        }
+
+        // Draw the no-guess generator's progress
+        if (gameState == GameState.GENERATING) {
+            hudText.setLength(0);
+            hudText.append("Generating a no-guess board (")
+                    .append((int) (noGuessGenerator.getProgress() * 100)).append("%, ")
+                    .append(noGuessGenerator.getAttempts()).append(" tried)");
+            font.setColor(Color.WHITE);
+            font.draw(batch, hudText, 1280 / 2, 120, 0, Align.center, false);
+        }
+
+        if (frameProfiler.isEnabled()) {
+            drawProfileOverlay();
         }
 
         batch.end();
+        frameProfiler.endPhase(PHASE_TEXT);
+        frameProfiler.endFrame(batch);
     }
 
     /**
-     * Interpolate the camera's position and zoom to a target position and zoom.
-     * (gameCameraTargetPosition and gameCameraTargetZoom)
-     *
-     * @param delta The change in time in seconds since the last frame.
+     * Draw the frame profiler's percentiles under the mines counter, working them out again
+     * every {@link #PROFILE_OVERLAY_INTERVAL} frames. The batch must have begun.
+     */
+    private void drawProfileOverlay() {
+        if (frameProfiler.getFrames() % PROFILE_OVERLAY_INTERVAL == 0 || profileText.length() == 0) {
+            profileText.setLength(0);
+            frameProfiler.appendSummary(profileText);
+        }
+        font.getData().setScale(0.5f);
+        font.setColor(Color.WHITE);
+        font.draw(batch, profileText, hud.counterPosition.x, hud.counterPosition.y - 64);
+        font.getData().setScale(1);
+    }
+
+    /**
+     * Write the frames the profiler measured to a CSV file in the local profiles folder, then
+     * forget them and stop measuring.
      */
-    private void interpolateCamera(float delta) {
-        gameCamera.position.x += (gameCameraTargetPosition.x - gameCamera.position.x) * 10 * delta;
-        gameCamera.position.y += (gameCameraTargetPosition.y - gameCamera.position.y) * 10 * delta;
-        gameCamera.zoom += (gameCameraTargetZoom - gameCamera.zoom) * 10 * delta;
+    private void writeFrameProfile() {
+        if (frameProfiler.getFrames() > 0 && Gdx.files.isLocalStorageAvailable()) {
+            FileHandle file = Gdx.files.local("profiles/frames-" + TimeUtils.millis() + ".csv");
+            try {
+                frameProfiler.writeCsv(file);
+                Gdx.app.log("GameScreen", "wrote frame profile to " + file.path());
+            } catch (GdxRuntimeException e) {
+                Gdx.app.error("GameScreen", "could not write the frame profile", e);
+            }
+        }
+        frameProfiler.clear();
+        frameProfiler.setEnabled(false);
     }
 
     /**
-     * Quit the game and return the player to the menu.
+     * Undo the player's last move. Undoing the move that lost the game puts it back in play.
      */
-    private void returnToMenu() {
-        dispose();
-        game.setScreen(new MenuScreen(game));
+    private void undoMove() {
+        if ((gameState != GameState.PLAYING && gameState != GameState.LOST) || board.isOpening() || !board.undo()) {
+            return;
+        }
+        recordMove(ReplayWriter.UNDO, 0, 0);
+        if (gameState == GameState.LOST) {
+            gameState = GameState.PLAYING;
+            boardRenderer.setLost(false);
+        }
+        // What was proven may rest on cells that are closed again.
+        solverStrategy.reset();
+        hintCell = -1;
+        autoSolving = false;
     }
 
     @Override
-    public boolean touchDown(int screenX, int screenY, int pointer, int button) {
-        touchPos.set(screenX, screenY, 0);
-        screenTouchDownPos = touchPos.cpy();
-        gameCamera.unproject(touchPos);
-
-        if (gameState == GameState.PLAYING || gameState == GameState.NOT_STARTED) {
-            if (boardWorldRectangle.contains(touchPos.x, touchPos.y)) {
-                int cellX = (int) touchPos.x / cellSize;
-                int cellY = (int) touchPos.y / cellSize;
-
-                // Make sure that the cell coordinates are on the board
-                if ((cellX >= 0 && cellX <= boardWidth) && (cellY >= 0 && cellY <= boardHeight)) {
-
-                    if (!board[cellX][cellY].opened) {
-                        // Cell is not yet open
-                        pressingCell = new Vector2(cellX, cellY);
-                        if (!board[cellX][cellY].flagged) {
-                            board[cellX][cellY].texture = cellTextures.findRegion("cell_normal_down");
-                        } else {
-                            board[cellX][cellY].texture = cellTextures.findRegion("cell_flag_down");
-                        }
-                    } else {
-                        // Cell is already open
-                        chordingCell = new Vector2(cellX, cellY);
-                    }
-                }
-
-                return true;
-            }
+    protected void returnToMenu() {
+        // The screen is kept for the next game, so only the game in progress is stopped.
+        if (noGuessGenerator != null) {
+            noGuessGenerator.cancel();
         }
-        return false;
+        stopRecording();
+        super.returnToMenu();
+    }
 
+    @Override
+    protected boolean canPlay() {
+        // Cells can't be played while an empty region is being revealed.
+        return (gameState == GameState.PLAYING || gameState == GameState.NOT_STARTED) && !board.isOpening();
     }
 
     @Override
-    public boolean touchUp(int screenX, int screenY, int pointer, int button) {
-        boolean returnTrue = false;
-
-        // Set touchPos to world coordinates of touchUp position
-        touchPos.set(screenX, screenY, 0);
-        gameCamera.unproject(touchPos);
-
-        if (gameState == GameState.PLAYING || gameState == GameState.NOT_STARTED) {
-            // cellX and cellY represent the boards coordinates of the touched cell
-            int cellX = (int) touchPos.x / cellSize;
-            int cellY = (int) touchPos.y / cellSize;
-
-            // Make sure the cell position is on the board
-            if ((cellX >= 0 && cellX < boardWidth) && (cellY >= 0 && cellY < boardHeight)) {
-
-                // Pressing cell logic
-                if (pressingCell != null) {
-                    if (cellX == pressingCell.x && cellY == pressingCell.y && !panningCamera) {
-                        if (button == 0) {
-                            if (gameState == GameState.NOT_STARTED) {
-                                generateMines(this.mines, cellX, cellY);
-                                generateCellLabels();
-                                gameState = GameState.PLAYING;
-                            }
-                            if (!board[cellX][cellY].flagged) {
-                                openCell(cellX, cellY);
-                            } else {
-                                board[cellX][cellY].texture = cellTextures.findRegion("cell_flag_up");
-                            }
-                        } else if (button == 1) {
-                            toggleFlagCell(cellX, cellY);
-                        }
-                        returnTrue = true;
-                    } else {
-                        // Dragged off the cell
-                        board[(int) pressingCell.x][(int) pressingCell.y].texture =
-                                !board[(int) pressingCell.x][(int) pressingCell.y].flagged ?
-                                        cellTextures.findRegion("cell_normal_up") :
-                                        cellTextures.findRegion("cell_flag_up");
-                    }
-                }
-
-                // Chording cell logic
-                if (chordingCell != null && gameState == GameState.PLAYING) {
-                    if (cellX == chordingCell.x && cellY == chordingCell.y && !panningCamera) {
-                        chordCell(cellX, cellY);
-                    } else {
-                        // Dragged off cell
-                    }
-                }
+    protected boolean containsCell(int x, int y) {
+        return board.contains(x, y);
+    }
 
-            }
+    @Override
+    protected boolean isCellOpened(int x, int y) {
+        return board.isOpened(x, y);
+    }
 
+    @Override
+    protected void playCell(int x, int y, int button) {
+        if (button == Input.Buttons.LEFT) {
+            if (gameState == GameState.NOT_STARTED) {
+                startGame(x, y);
+            } else {
+                openCell(x, y);
+            }
+        } else if (button == Input.Buttons.RIGHT) {
+            toggleFlagCell(x, y);
         }
-        pressingCell = null;
-        chordingCell = null;
-        panningCamera = false;
-        return returnTrue;
     }
 
     @Override
-    public boolean touchDragged(int screenX, int screenY, int pointer) {
-        if (gameCameraTargetZoom < defaultZoom - 0.1f && (
-                Math.abs(screenTouchDownPos.x - screenX) >= 20 ||
-                        Math.abs(screenTouchDownPos.y - screenY) >= 20 || panningCamera)) {
-            panningCamera = true;
-            gameCamera.translate((screenTouchDownPos.x - screenX) / 4f,
-                    -(screenTouchDownPos.y - screenY) / 4f);
-            gameCameraTargetPosition.set(gameCamera.position.cpy());
-            gameCameraTargetPosition.x = MathUtils.clamp(gameCameraTargetPosition.x,
-                    boardWorldRectangle.x, boardWorldRectangle.x + boardWorldRectangle.width);
-            gameCameraTargetPosition.y = MathUtils.clamp(gameCameraTargetPosition.y,
-                    boardWorldRectangle.y, boardWorldRectangle.y + boardWorldRectangle.height);
-            screenTouchDownPos.set(screenX, screenY, 0);
-            return true;
+    protected void setPressedCell(int x, int y) {
+        boardRenderer.setPressedCell(x, y);
+    }
+
+    @Override
+    public boolean touchUp(int screenX, int screenY, int pointer, int button) {
+        GameTracer tracer = GameTracer.get();
+        Object event = tracer != null ? tracer.begin(GameTracer.TOUCH_UP) : null;
+        int openedBefore = board.getCellsOpened();
+        boolean handled = super.touchUp(screenX, screenY, pointer, button);
+        if (event != null) {
+            tracer.end(event, board, board.getCellsOpened() - openedBefore);
         }
-        return false;
+        return handled;
     }
 
     @Override
-    public boolean mouseMoved(int screenX, int screenY) {
-        return false;
+    protected boolean canPan() {
+        // The board only pans once zoomed in.
+        return gameCameraTargetZoom < defaultZoom - 0.1f;
     }
 
     @Override
-    public boolean keyDown(int keycode) {
-        return false;
+    protected float getPanScale() {
+        return 1 / 4f;
+    }
+
+    @Override
+    protected void clampCameraTarget() {
+        gameCameraTargetPosition.x = MathUtils.clamp(gameCameraTargetPosition.x,
+                boardWorldRectangle.x, boardWorldRectangle.x + boardWorldRectangle.width);
+        gameCameraTargetPosition.y = MathUtils.clamp(gameCameraTargetPosition.y,
+                boardWorldRectangle.y, boardWorldRectangle.y + boardWorldRectangle.height);
     }
 
     @Override
@@ -554,14 +728,22 @@ public class GameScreen implements Screen, InputProcessor {
                         && keycode == Input.Keys.SPACE) {
             resetGame();
         }
+        if (keycode == Input.Keys.H && gameState == GameState.PLAYING) {
+            showHint();
+        }
+        if (keycode == Input.Keys.A) {
+            autoSolving = !autoSolving;
+        }
+        if (keycode == Input.Keys.U || keycode == Input.Keys.Z || keycode == Input.Keys.BACKSPACE) {
+            undoMove();
+        }
         if (keycode == Input.Keys.ESCAPE) {
             returnToMenu();
         }
-        return false;
-    }
-
-    @Override
-    public boolean keyTyped(char character) {
+        if (keycode == Input.Keys.F3) {
+            frameProfiler.setEnabled(!frameProfiler.isEnabled());
+            profileText.setLength(0);
+        }
         return false;
     }
 
@@ -576,19 +758,73 @@ public class GameScreen implements Screen, InputProcessor {
     }
 
     @Override
-    public void show() {
-
+    public void pause() {
+        if (board.isOpening()) {
+            // The save would only hold part of the reveal, so it is finished now, which may
+            // win the game and leave nothing to save.
+            finishReveal(board);
+            checkGameOver();
+        }
+        gameStateBeforePause = gameState;
+        gameState = GameState.PAUSED;
+        if (replayWriter != null) {
+            replayWriter.flush();
+        }
+        saveSnapshot();
     }
 
-    @Override
-    public void resize(int width, int height) {
+    /**
+     * Save the game in progress so it can be resumed if the app is closed, or delete the save
+     * if there is no game in progress. Only the copy of the cells is taken on this thread;
+     * they are packed and written on a worker thread.
+     */
+    private void saveSnapshot() {
+        if (!Gdx.files.isLocalStorageAvailable()) {
+            return;
+        }
+        finishSnapshot();
+        final FileHandle file = getSnapshotFile();
+        if (gameStateBeforePause != GameState.PLAYING) {
+            file.delete();
+            return;
+        }
+        if (snapshot == null) {
+            snapshot = new GameSnapshot();
+        }
+        snapshot.capture(board, seed, noGuess, (long) (gameTime * 1000));
+        final GameSnapshot captured = snapshot;
+        snapshotWrite = Workers.get().submit(new AsyncTask<Void>() {
+            @Override
+            public Void call() {
+                captured.write(file);
+                return null;
+            }
+        });
+    }
 
+    /**
+     * Delete the saved game, once any save being written has finished, so that the menu only
+     * offers to resume a game that is still in progress.
+     */
+    private void deleteSnapshot() {
+        if (Gdx.files.isLocalStorageAvailable()) {
+            finishSnapshot();
+            getSnapshotFile().delete();
+        }
     }
 
-    @Override
-    public void pause() {
-        gameStateBeforePause = gameState;
-        gameState = GameState.PAUSED;
+    /**
+     * Wait for the save being written in the background, if there is one.
+     */
+    private void finishSnapshot() {
+        if (snapshotWrite != null) {
+            try {
+                snapshotWrite.get();
+            } catch (GdxRuntimeException e) {
+                Gdx.app.error("GameScreen", "could not save the game", e);
+            }
+            snapshotWrite = null;
+        }
     }
 
     @Override
@@ -598,12 +834,19 @@ public class GameScreen implements Screen, InputProcessor {
 
     @Override
     public void hide() {
-
+        // The app quitting hides the screen without disposing it.
+        writeFrameProfile();
     }
 
     @Override
     public void dispose() {
-
+        stopRecording();
+        finishSnapshot();
+        boardRenderer.dispose();
+        solverStrategy.dispose();
+        if (noGuessGenerator != null) {
+            noGuessGenerator.dispose();
+        }
     }
 
 }
@@ -0,0 +1,117 @@
+package ga.kylemclean.minesweeper.screens;
+
+import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.g2d.GlyphLayout;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.StringBuilder;
+
+/**
+ * The counter in the top left and the timer in the top right of a game screen.
+ * <p>
+ * Their text is built in a reused {@link StringBuilder} and only laid out again when the value
+ * it shows changes, which is at most once a second or once a move, so drawing a frame where
+ * neither changes doesn't allocate.
+ */
+class Hud {
+
+    /** The space between the text and the edge of the box behind it. */
+    private static final float PADDING = 8;
+
+    private final BitmapFont font;
+    final GlyphLayout counterLayout, timeLayout;
+    private final StringBuilder text;
+    /** The values that counterLayout and timeLayout were last laid out with. */
+    private long displayedCounter;
+    private int displayedSeconds;
+    /** The top left of the counter and the top right of the timer. */
+    final Vector2 counterPosition, timePosition;
+
+    /**
+     * @param font The font to draw the text with.
+     */
+    Hud(BitmapFont font) {
+        this.font = font;
+        counterLayout = new GlyphLayout();
+        timeLayout = new GlyphLayout();
+        text = new StringBuilder(24);
+        counterPosition = new Vector2(24, 720 - 24);
+        timePosition = new Vector2(1280 - 24, 720 - 24);
+        invalidate();
+    }
+
+    /**
+     * Forget the values shown, so that both are laid out on the next update.
+     */
+    void invalidate() {
+        displayedCounter = Long.MIN_VALUE;
+        displayedSeconds = -1;
+    }
+
+    /**
+     * Show a number in the counter, laying it out again if it changed.
+     *
+     * @param value     The number to show.
+     * @param minDigits The fewest digits to show, padding the number with zeros.
+     */
+    void setCounter(long value, int minDigits) {
+        if (value == displayedCounter) {
+            return;
+        }
+        displayedCounter = value;
+        text.setLength(0);
+        int digits = 1;
+        for (long rest = value / 10; rest != 0; rest /= 10) {
+            digits++;
+        }
+        for (; value >= 0 && digits < minDigits; digits++) {
+            text.append('0');
+        }
+        text.append(value);
+        counterLayout.setText(font, text);
+    }
+
+    /**
+     * Show a time in the timer as minutes and seconds, laying it out again if the whole
+     * seconds changed.
+     *
+     * @param time The time in seconds.
+     */
+    void setTime(float time) {
+        int seconds = (int) time;
+        if (seconds == displayedSeconds) {
+            return;
+        }
+        displayedSeconds = seconds;
+        text.setLength(0);
+        text.append(seconds / 60).append(':');
+        if (seconds % 60 < 10) {
+            text.append('0');
+        }
+        text.append(seconds % 60);
+        timeLayout.setText(font, text);
+    }
+
+    /**
+     * Draw the boxes behind the counter and timer. The shape renderer must have begun
+     * drawing filled shapes in screen coordinates.
+     */
+    void drawBackgrounds(ShapeRenderer shapeRenderer) {
+        shapeRenderer.setColor(0.2f, 0.2f, 0.2f, 0.75f);
+        shapeRenderer.rect(counterPosition.x - PADDING, counterPosition.y + PADDING,
+                counterLayout.width + PADDING * 2, -counterLayout.height - PADDING * 2);
+        shapeRenderer.rect(timePosition.x + PADDING, timePosition.y + PADDING,
+                -timeLayout.width - PADDING * 2, -timeLayout.height - PADDING * 2);
+    }
+
+    /**
+     * Draw the counter and timer. The batch must have begun in screen coordinates.
+     */
+    void draw(SpriteBatch batch) {
+        font.draw(batch, counterLayout, counterPosition.x, counterPosition.y);
+        font.draw(batch, timeLayout,
+        /* right aligned */timePosition.x - timeLayout.width, timePosition.y);
+    }
+
+}
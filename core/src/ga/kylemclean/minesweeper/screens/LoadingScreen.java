@@ -0,0 +1,83 @@
+package ga.kylemclean.minesweeper.screens;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Screen;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
+import com.badlogic.gdx.scenes.scene2d.ui.Skin;
+
+import ga.kylemclean.minesweeper.Minesweeper;
+
+/**
+ * Shows a progress bar while the assets load, and moves on to the menu as soon as the menu's
+ * skin is ready. The game's assets keep streaming in while the menu is shown.
+ * <p>
+ * Nothing is drawn with assets here, as none have loaded yet.
+ */
+public class LoadingScreen implements Screen {
+
+    private static final float BAR_WIDTH = 600;
+    private static final float BAR_HEIGHT = 24;
+
+    private Minesweeper game;
+    private ShapeRenderer shapeRenderer;
+
+    public LoadingScreen(Minesweeper game) {
+        this.game = game;
+        shapeRenderer = game.shapeRenderer;
+    }
+
+    @Override
+    public void render(float delta) {
+        // Cleared first, so the frame the menu is handed over on isn't left holding whatever
+        // the buffer held before.
+        Gdx.gl20.glClearColor(0, 0, 0, 1);
+        Gdx.gl20.glClear(GL20.GL_COLOR_BUFFER_BIT);
+
+        // The game updates the asset manager before rendering the screen.
+        if (game.assets.isLoaded("ui/uiskin.json", Skin.class)) {
+            game.setScreen(game.getMenuScreen());
+            return;
+        }
+
+        float x = 1280 / 2 - BAR_WIDTH / 2;
+        float y = 720 / 2 - BAR_HEIGHT / 2;
+        shapeRenderer.setProjectionMatrix(game.fixedCamera.combined);
+        shapeRenderer.begin(ShapeRenderer.ShapeType.Filled);
+        shapeRenderer.setColor(0.2f, 0.2f, 0.2f, 1);
+        shapeRenderer.rect(x, y, BAR_WIDTH, BAR_HEIGHT);
+        shapeRenderer.setColor(1, 1, 1, 1);
+        shapeRenderer.rect(x, y, BAR_WIDTH * game.assets.getProgress(), BAR_HEIGHT);
+        shapeRenderer.end();
+    }
+
+    @Override
+    public void show() {
+
+    }
+
+    @Override
+    public void resize(int width, int height) {
+
+    }
+
+    @Override
+    public void pause() {
+
+    }
+
+    @Override
+    public void resume() {
+
+    }
+
+    @Override
+    public void hide() {
+
+    }
+
+    @Override
+    public void dispose() {
+
+    }
+}
@@ -7,13 +7,18 @@ import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.scenes.scene2d.Actor;
 import com.badlogic.gdx.scenes.scene2d.Stage;
 import com.badlogic.gdx.scenes.scene2d.ui.ButtonGroup;
+import com.badlogic.gdx.scenes.scene2d.ui.Cell;
 import com.badlogic.gdx.scenes.scene2d.ui.Label;
 import com.badlogic.gdx.scenes.scene2d.ui.Skin;
 import com.badlogic.gdx.scenes.scene2d.ui.Slider;
 import com.badlogic.gdx.scenes.scene2d.ui.Table;
 import com.badlogic.gdx.scenes.scene2d.ui.TextButton;
+import com.badlogic.gdx.scenes.scene2d.ui.TextField;
 import com.badlogic.gdx.scenes.scene2d.utils.ChangeListener;
 
+import ga.kylemclean.minesweeper.game.GameSnapshot;
+import ga.kylemclean.minesweeper.game.SplitMix64;
+
 public class MenuScreen implements Screen {
 
     private ga.kylemclean.minesweeper.Minesweeper game;
@@ -25,7 +30,11 @@ public class MenuScreen implements Screen {
     private Label widthNameLabel, heightNameLabel, minesNameLabel;
     private Label widthValueLabel, heightValueLabel, minesValueLabel;
     private Slider boardWidthSlider, boardHeightSlider, minesSlider;
-    private TextButton playButton;
+    private TextButton playButton, endlessButton, noGuessButton, resumeButton;
+    private TextField seedField;
+    private Cell<TextButton> resumeCell;
+    /** The header of the saved game that the resume button resumes, or null. */
+    private GameSnapshot snapshot;
 
     private final int MIN_BOARD_WIDTH = 9;
     private final int MAX_BOARD_WIDTH = 30;
@@ -38,7 +47,6 @@ public class MenuScreen implements Screen {
         this.game = game;
 
         setupUi();
-        Gdx.input.setInputProcessor(stage);
     }
 
     /**
@@ -134,6 +142,19 @@ public class MenuScreen implements Screen {
         table.add(customSettingsTable).colspan(4);
         table.row();
 
+        noGuessButton = new TextButton("No guessing", skin);
+        table.add(noGuessButton).colspan(4);
+        table.row();
+
+        // Players who enter the same seed and open the same first cell get the same board.
+        Table seedTable = new Table(skin);
+        seedField = new TextField("", skin);
+        seedField.setMessageText("Random");
+        seedTable.add(new Label("Seed: ", skin));
+        seedTable.add(seedField).width(400);
+        table.add(seedTable).colspan(4);
+        table.row();
+
         playButton = new TextButton("Play", skin);
         playButton.addListener(new ChangeListener() {
             @Override
@@ -141,10 +162,33 @@ public class MenuScreen implements Screen {
                 startGame(
                         (int) boardWidthSlider.getValue(),
                         (int) boardHeightSlider.getValue(),
-                        (int) minesSlider.getValue());
+                        (int) minesSlider.getValue(),
+                        noGuessButton.isChecked(),
+                        getSeed());
             }
         });
         table.add(playButton).colspan(4);
+        table.row();
+
+        // Shown by show() when there is a saved game.
+        resumeButton = new TextButton("", skin);
+        resumeButton.addListener(new ChangeListener() {
+            @Override
+            public void changed(ChangeEvent event, Actor actor) {
+                resumeGame(snapshot);
+            }
+        });
+        resumeCell = table.add(resumeButton).colspan(4);
+        table.row();
+
+        endlessButton = new TextButton("Endless", skin);
+        endlessButton.addListener(new ChangeListener() {
+            @Override
+            public void changed(ChangeEvent event, Actor actor) {
+                startEndlessGame();
+            }
+        });
+        table.add(endlessButton).colspan(4);
         table.setFillParent(true);
         stage.addActor(table);
         stage.setDebugAll(false);
@@ -160,15 +204,59 @@ public class MenuScreen implements Screen {
         return (int) MathUtils.clamp(n * n, 64, MAX_MINES);
     }
 
+    /**
+     * Get the seed entered by the player. A number is used as it is, and any other text is
+     * hashed, so a shared phrase such as a date works as a seed.
+     *
+     * @return The seed, or a random seed if none was entered.
+     */
+    private long getSeed() {
+        String text = seedField.getText().trim();
+        if (text.length() == 0) {
+            return MathUtils.random.nextLong();
+        }
+        try {
+            return Long.parseLong(text);
+        } catch (NumberFormatException e) {
+            long seed = 0;
+            for (int i = 0; i < text.length(); i++) {
+                seed = SplitMix64.mix(seed + text.charAt(i));
+            }
+            return seed;
+        }
+    }
+
     /**
      * Start a game with the specified properties.
      * @param boardWidth The width of the board in cells.
      * @param boardHeight The height of the board in cells.
      * @param mines The number of mines on the board to be generated.
+     * @param noGuess Whether the board should be solvable without guessing.
+     * @param seed The seed to generate the board from.
+     */
+    private void startGame(int boardWidth, int boardHeight, int mines, boolean noGuess, long seed) {
+        GameScreen gameScreen = game.getGameScreen();
+        gameScreen.newGame(boardWidth, boardHeight, mines, noGuess, seed);
+        game.setScreen(gameScreen);
+    }
+
+    /**
+     * Resume the game that was saved when the app was last paused.
+     * @param snapshot The header of the saved game.
+     */
+    private void resumeGame(GameSnapshot snapshot) {
+        GameScreen gameScreen = game.getGameScreen();
+        gameScreen.resumeGame(snapshot);
+        game.setScreen(gameScreen);
+    }
+
+    /**
+     * Start a game in endless mode.
      */
-    private void startGame(int boardWidth, int boardHeight, int mines) {
-        dispose();
-        game.setScreen(new GameScreen(game, boardWidth, boardHeight, mines));
+    private void startEndlessGame() {
+        EndlessGameScreen endlessGameScreen = game.getEndlessGameScreen();
+        endlessGameScreen.newGame();
+        game.setScreen(endlessGameScreen);
     }
 
     @Override
@@ -182,7 +270,19 @@ public class MenuScreen implements Screen {
 
     @Override
     public void show() {
-
+        Gdx.input.setInputProcessor(stage);
+        // The game may have been saved or finished since the menu was last shown. Only the
+        // header of a saved game is read here; its cells are loaded if it is resumed.
+        snapshot = Gdx.files.isLocalStorageAvailable()
+                ? GameSnapshot.readHeader(GameScreen.getSnapshotFile()) : null;
+        if (snapshot != null) {
+            resumeButton.setText("Resume " + snapshot.getWidth() + " x " + snapshot.getHeight()
+                    + ", " + snapshot.getMines() + " mines");
+            resumeCell.setActor(resumeButton);
+        } else {
+            resumeCell.clearActor();
+        }
+        table.invalidate();
     }
 
     @Override
@@ -0,0 +1,37 @@
+package ga.kylemclean.minesweeper;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Counts the bytes allocated on the heap by the current thread, for tests that check that a
+ * path doesn't allocate. Needs a JVM that supports {@link com.sun.management.ThreadMXBean}.
+ */
+public final class Allocations {
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private Allocations() {
+    }
+
+    /**
+     * @return The bytes the current thread has allocated so far.
+     */
+    public static long allocatedBytes() {
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * @return The bytes that reading {@link #allocatedBytes()} twice in a row counts, which
+     * is subtracted from a measurement.
+     */
+    public static long overhead() {
+        long least = Long.MAX_VALUE;
+        for (int i = 0; i < 16; i++) {
+            long start = allocatedBytes();
+            least = Math.min(least, allocatedBytes() - start);
+        }
+        return least;
+    }
+
+}
@@ -0,0 +1,102 @@
+package ga.kylemclean.minesweeper.game;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BoardTest {
+
+    /** The time allowed for opening the 100 million cells of the largest empty board. */
+    private static final long FLOOD_FILL_BUDGET_MILLIS = 5000;
+
+    /**
+     * The bitboard labels of random boards must match counting each cell's neighbours one by
+     * one, as the labelling did before it used bitboards. The sizes straddle the 64-cell words
+     * of a bitboard row.
+     */
+    @Test
+    public void labelsMatchScalarCount() {
+        SplitMix64 sizes = new SplitMix64(0x1AB3L);
+        int[] widths = {1, 2, 3, 9, 30, 63, 64, 65, 127, 128, 129, 200};
+        for (int trial = 0; trial < 500; trial++) {
+            int width = widths[sizes.nextInt(widths.length)];
+            int height = 1 + sizes.nextInt(70);
+            if (width * height < 10) {
+                continue;
+            }
+            // From no mines to every cell outside the first cell's 3x3 space.
+            int mines = sizes.nextInt(width * height - 9 + 1);
+            checkLabels(width, height, mines, sizes.nextLong());
+        }
+    }
+
+    /**
+     * Boards of at least a million cells are labelled in stripes on the worker pool, which
+     * must give the same labels as one thread.
+     */
+    @Test
+    public void parallelLabelsMatchScalarCount() {
+        assertTrue("the tests are run with several worker threads", Workers.THREADS > 1);
+        checkLabels(1100, 1000, 1100 * 1000 / 6, 1L);
+        checkLabels(1025, 1031, 1025 * 1031 / 2, 2L);
+        checkLabels(4096, 300, 4096 * 300 / 10, 3L);
+    }
+
+    /**
+     * The first click on an empty 10,000x10,000 board opens every cell in one flood fill,
+     * without running out of stack and within the time budget.
+     */
+    @Test(timeout = 10000)
+    public void openEmptyHugeBoard() {
+        int size = 10000;
+        Board board = new Board(size, size, 0);
+        board.generate(size / 2, size / 2);
+        long start = System.nanoTime();
+        int opened = board.open(size / 2, size / 2);
+        long millis = (System.nanoTime() - start) / 1000000;
+        assertEquals(size * size, opened);
+        assertEquals(size * size, board.getCellsOpened());
+        assertTrue(board.isWon());
+        assertTrue("opening took " + millis + " ms", millis < FLOOD_FILL_BUDGET_MILLIS);
+    }
+
+    private static void checkLabels(int width, int height, int mines, long seed) {
+        Board board = new Board(width, height, mines);
+        SplitMix64 random = new SplitMix64(seed);
+        int initialX = random.nextInt(width);
+        int initialY = random.nextInt(height);
+        board.generate(initialX, initialY, random);
+
+        int placed = 0;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (board.isMine(x, y)) {
+                    placed++;
+                    assertEquals("label of mine at " + x + "," + y, 0, board.getSurroundingMines(x, y));
+                } else {
+                    assertEquals("label at " + x + "," + y + " of " + width + "x" + height + " seed " + seed,
+                            countSurroundingMines(board, x, y), board.getSurroundingMines(x, y));
+                }
+            }
+        }
+        assertEquals(mines, placed);
+        assertTrue(!board.isMine(initialX, initialY));
+    }
+
+    /**
+     * Count the mines around a cell with bounds-checked reads of its eight neighbours.
+     */
+    private static int countSurroundingMines(Board board, int x, int y) {
+        int surroundingMines = 0;
+        for (int dy = -1; dy <= 1; dy++) {
+            for (int dx = -1; dx <= 1; dx++) {
+                if (board.contains(x + dx, y + dy) && board.isMine(x + dx, y + dy)) {
+                    surroundingMines++;
+                }
+            }
+        }
+        return surroundingMines;
+    }
+
+}
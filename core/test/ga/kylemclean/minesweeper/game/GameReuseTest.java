@@ -0,0 +1,76 @@
+package ga.kylemclean.minesweeper.game;
+
+import org.junit.Test;
+
+import ga.kylemclean.minesweeper.Allocations;
+
+import static org.junit.Assert.assertEquals;
+
+public class GameReuseTest {
+
+    /** The beginner, intermediate and expert sizes, as width, height and mines. */
+    private static final int[][] PRESETS = {{9, 9, 10}, {16, 16, 40}, {30, 16, 99}};
+    /** The games played in each round. */
+    private static final int GAMES = 300;
+    /** The rounds of the same games played, the first of which grows the storage to fit them. */
+    private static final int ROUNDS = 6;
+
+    /**
+     * Starting and playing games on a board that is kept between them, as GameScreen does,
+     * must not allocate once the board and its solver have grown to fit the games: restarting
+     * at the same size as F2 does, and resizing to another preset as picking one from the menu
+     * does.
+     * <p>
+     * The JIT compiler can allocate a few bytes on the thread while it swaps in compiled code,
+     * so the fewest bytes over several rounds of the same games is checked.
+     */
+    @Test
+    public void restartingGamesDoesNotAllocate() {
+        // Start at the largest size, so that the smaller ones fit in its storage.
+        Board board = new Board(30, 16, 99);
+        board.setJournal(new UndoJournal());
+        SolverStrategy strategy = new SolverStrategy(false);
+        strategy.start(board);
+        SplitMix64 random = new SplitMix64(0);
+
+        long overhead = Allocations.overhead();
+        long fewest = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = Allocations.allocatedBytes();
+            playGames(board, strategy, random);
+            fewest = Math.min(fewest, Allocations.allocatedBytes() - start - overhead);
+        }
+        assertEquals("bytes allocated over " + GAMES + " games", 0, fewest);
+        strategy.dispose();
+    }
+
+    /**
+     * Play the same games as every other round, cycling through the presets and playing each
+     * twice, so that every other game restarts at the same size.
+     */
+    private static void playGames(Board board, SolverStrategy strategy, SplitMix64 random) {
+        for (int game = 0; game < GAMES; game++) {
+            int[] preset = PRESETS[game / 2 % PRESETS.length];
+            if (board.getWidth() != preset[0] || board.getHeight() != preset[1]
+                    || board.getMines() != preset[2]) {
+                board.resize(preset[0], preset[1], preset[2]);
+            } else {
+                board.reset();
+            }
+            strategy.start(board);
+            int x = board.getWidth() / 2;
+            int y = board.getHeight() / 2;
+            random.setSeed(game);
+            board.generate(x, y, random);
+            board.open(x, y);
+            while (!board.isFinished() && strategy.move()) {
+                // Play every move that can be proven.
+            }
+            // Take the last move back, as the player might.
+            if (board.undo()) {
+                strategy.reset();
+            }
+        }
+    }
+
+}
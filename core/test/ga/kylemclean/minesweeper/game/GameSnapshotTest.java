@@ -0,0 +1,154 @@
+package ga.kylemclean.minesweeper.game;
+
+import com.badlogic.gdx.files.FileHandle;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class GameSnapshotTest {
+
+    /** The size of the cell counters at the end of the header. */
+    private static final int COUNTERS_SIZE = 4 + 4;
+
+    private FileHandle file;
+
+    @Before
+    public void createFile() throws IOException {
+        File temp = File.createTempFile("game", ".snapshot");
+        file = new FileHandle(temp);
+    }
+
+    @After
+    public void deleteFile() {
+        file.delete();
+    }
+
+    @Test
+    public void restoresSavedGame() {
+        Board saved = playedExpertGame();
+        save(saved);
+
+        Board board = new Board(30, 16, 99);
+        assertTrue(GameSnapshot.readHeader(file).restore(file, board));
+        assertArrayEquals(cells(saved), cells(board));
+        assertEquals(saved.getCellsOpened(), board.getCellsOpened());
+        assertEquals(saved.getCellsFlagged(), board.getCellsFlagged());
+    }
+
+    /**
+     * A save with an extra mine in its cells is damaged, and must not be loaded: the board
+     * would have more mines than it has room to index.
+     */
+    @Test
+    public void rejectsExtraMine() {
+        save(playedExpertGame());
+        byte[] data = file.readBytes();
+        // Make the first closed, safe cell a mine.
+        int cellsStart = data.length - (30 * 16 + 1) / 2;
+        for (int j = cellsStart; ; j++) {
+            if ((data[j] & 0x03) == 0) {
+                data[j] |= 0x01;
+                break;
+            } else if ((data[j] & 0x30) == 0) {
+                data[j] |= 0x10;
+                break;
+            }
+        }
+        file.writeBytes(data, false);
+        checkRejected();
+    }
+
+    /**
+     * A save with a mine missing from its cells is damaged, and must not be loaded: the board
+     * could never be won, or be won too early.
+     */
+    @Test
+    public void rejectsMissingMine() {
+        save(playedExpertGame());
+        byte[] data = file.readBytes();
+        int cellsStart = data.length - (30 * 16 + 1) / 2;
+        for (int j = cellsStart; ; j++) {
+            if ((data[j] & 0x01) != 0) {
+                data[j] &= ~0x01;
+                break;
+            } else if ((data[j] & 0x10) != 0) {
+                data[j] &= ~0x10;
+                break;
+            }
+        }
+        file.writeBytes(data, false);
+        checkRejected();
+    }
+
+    /**
+     * A save whose cells don't add up to the counters in its header is damaged too.
+     */
+    @Test
+    public void rejectsWrongCounters() {
+        save(playedExpertGame());
+        byte[] data = file.readBytes();
+        int cellsStart = data.length - (30 * 16 + 1) / 2;
+        // Add one to the low byte of the opened cell counter.
+        data[cellsStart - COUNTERS_SIZE + 3]++;
+        file.writeBytes(data, false);
+        checkRejected();
+    }
+
+    /**
+     * Restoring a damaged save must fail and leave the board as it was.
+     */
+    private void checkRejected() {
+        GameSnapshot snapshot = GameSnapshot.readHeader(file);
+        assertNotNull(snapshot);
+        Board board = playedExpertGame();
+        byte[] before = cells(board);
+        int opened = board.getCellsOpened();
+        int flagged = board.getCellsFlagged();
+        assertFalse(snapshot.restore(file, board));
+        assertArrayEquals(before, cells(board));
+        assertEquals(opened, board.getCellsOpened());
+        assertEquals(flagged, board.getCellsFlagged());
+    }
+
+    /**
+     * @return An expert board with its first cell opened and a few mines flagged.
+     */
+    private static Board playedExpertGame() {
+        Board board = new Board(30, 16, 99);
+        board.generate(15, 8, new SplitMix64(7));
+        board.open(15, 8);
+        int flags = 0;
+        for (int y = 0; y < 16 && flags < 5; y++) {
+            for (int x = 0; x < 30 && flags < 5; x++) {
+                if (board.isMine(x, y)) {
+                    board.toggleFlag(x, y);
+                    flags++;
+                }
+            }
+        }
+        return board;
+    }
+
+    private void save(Board board) {
+        GameSnapshot snapshot = new GameSnapshot();
+        snapshot.capture(board, 7, false, 1234);
+        snapshot.write(file);
+    }
+
+    private static byte[] cells(Board board) {
+        byte[] cells = new byte[board.getWidth() * board.getHeight()];
+        board.copyCells(cells);
+        return cells;
+    }
+
+}
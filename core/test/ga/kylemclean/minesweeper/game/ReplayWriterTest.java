@@ -0,0 +1,131 @@
+package ga.kylemclean.minesweeper.game;
+
+import com.badlogic.gdx.files.FileHandle;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ReplayWriterTest {
+
+    private static final long SEED = 11;
+
+    private FileHandle file;
+
+    @Before
+    public void createFile() throws IOException {
+        File temp = File.createTempFile("game", ".replay");
+        file = new FileHandle(temp);
+    }
+
+    @After
+    public void deleteFile() {
+        file.delete();
+    }
+
+    /**
+     * A game recorded move by move plays back to the same board, with the same number of
+     * moves and the same finishing time.
+     */
+    @Test
+    public void replaysRecordedGame() {
+        Board board = new Board(30, 16, 99);
+        board.setJournal(new UndoJournal());
+        ReplayWriter writer = new ReplayWriter(file, 30, 16, 99, SEED);
+        int moves = playGame(board, writer);
+        writer.flush();
+
+        ReplayPlayer player = new ReplayPlayer();
+        byte[] data = file.readBytes();
+        assertTrue(player.getError(), player.play(data, data.length));
+        assertNull(player.getError());
+        assertFalse(player.isTruncated());
+        assertEquals(SEED, player.getSeed());
+        assertEquals(moves, player.getMoves());
+        assertEquals(board.isWon(), player.getBoard().isWon());
+        // Each move is recorded a tenth of a second after the one before, starting from 0.
+        assertEquals(board.isFinished() ? (moves - 1) * 100L : -1, player.getFinishTime());
+        assertArrayEquals(cells(board), cells(player.getBoard()));
+    }
+
+    /**
+     * Moves wait in the buffer until a second has passed, so that a move isn't written on
+     * every frame, and are all there once flushed.
+     */
+    @Test
+    public void flushIfDueWaitsForInterval() {
+        ReplayWriter writer = new ReplayWriter(file, 9, 9, 10, SEED);
+        long headerLength = file.length();
+        writer.record(ReplayWriter.OPEN, 40, 0);
+        writer.flushIfDue();
+        assertEquals(headerLength, file.length());
+
+        writer.flush();
+        ReplayPlayer player = new ReplayPlayer();
+        byte[] data = file.readBytes();
+        assertTrue(player.getError(), player.play(data, data.length));
+        assertEquals(1, player.getMoves());
+    }
+
+    /**
+     * Play the moves a solver can prove, or guess, recording each a tenth of a second after
+     * the last, and take one flag back along the way.
+     *
+     * @return The number of moves recorded.
+     */
+    private static int playGame(Board board, ReplayWriter writer) {
+        SolverStrategy strategy = new SolverStrategy(true);
+        strategy.setGuessBudget(ProbabilityEngine.DEFAULT_NODE_BUDGET, 0);
+        int x = 15;
+        int y = 8;
+        board.generate(x, y, new SplitMix64(SEED));
+        board.open(x, y);
+        strategy.start(board);
+        int moves = 0;
+        writer.record(ReplayWriter.OPEN, y * 30 + x, 0);
+        moves++;
+        boolean undone = false;
+        while (!board.isFinished()) {
+            int cell = strategy.nextMove();
+            if (cell < 0) {
+                break;
+            }
+            int action;
+            if (strategy.getMoveKind() == SolverStrategy.MINE) {
+                board.toggleFlag(cell % 30, cell / 30);
+                action = ReplayWriter.FLAG;
+            } else {
+                board.open(cell % 30, cell / 30);
+                action = ReplayWriter.OPEN;
+            }
+            writer.record(action, cell, moves * 100L);
+            moves++;
+            if (action == ReplayWriter.FLAG && !undone) {
+                assertTrue(board.undo());
+                strategy.reset();
+                writer.record(ReplayWriter.UNDO, 0, moves * 100L);
+                moves++;
+                undone = true;
+            }
+        }
+        assertTrue("a flag was taken back", undone);
+        strategy.dispose();
+        return moves;
+    }
+
+    private static byte[] cells(Board board) {
+        byte[] cells = new byte[board.getWidth() * board.getHeight()];
+        board.copyCells(cells);
+        return cells;
+    }
+
+}
@@ -0,0 +1,127 @@
+package ga.kylemclean.minesweeper.game;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SolverTest {
+
+    /** The number of expert games played in each test. */
+    private static final int GAMES = 1000;
+
+    /**
+     * Every cell the solver proves on expert boards, played with only correct flags, must be
+     * what it was proven to be.
+     */
+    @Test
+    public void proofsAreCorrect() {
+        SplitMix64 random = new SplitMix64(0x50L);
+        for (int game = 0; game < GAMES; game++) {
+            Board board = startExpertGame(random);
+            Solver solver = new Solver(board);
+            do {
+                solver.solve();
+                checkProofs(board, solver, game);
+            } while (playProvenCells(board, solver));
+            solver.dispose();
+        }
+    }
+
+    /**
+     * Flagging a safe cell makes the solver prove cells from a wrong flag. Once the flag is
+     * taken off again, those proofs must be gone before the next hint.
+     */
+    @Test
+    public void unflaggingWithdrawsProofs() {
+        SplitMix64 random = new SplitMix64(0x51L);
+        for (int game = 0; game < GAMES; game++) {
+            Board board = startExpertGame(random);
+            Solver solver = new Solver(board);
+            do {
+                solver.solve();
+                int wrongFlag = findClosedSafeFrontierCell(board, solver, random);
+                if (wrongFlag >= 0) {
+                    int x = wrongFlag % board.getWidth();
+                    int y = wrongFlag / board.getWidth();
+                    board.toggleFlag(x, y);
+                    solver.solve();
+                    board.toggleFlag(x, y);
+                    solver.solve();
+                    checkProofs(board, solver, game);
+                }
+            } while (playProvenCells(board, solver));
+            solver.dispose();
+        }
+    }
+
+    private static Board startExpertGame(SplitMix64 random) {
+        Board board = new Board(30, 16, 99);
+        int x = random.nextInt(30);
+        int y = random.nextInt(16);
+        board.generate(x, y, random);
+        board.open(x, y);
+        return board;
+    }
+
+    /**
+     * Open the cells proven safe and flag the cells proven to be mines.
+     *
+     * @return Whether any cell was played.
+     */
+    private static boolean playProvenCells(Board board, Solver solver) {
+        boolean played = false;
+        for (int cell = solver.nextSafeCell(); cell >= 0 && !board.isFinished(); cell = solver.nextSafeCell()) {
+            board.open(cell % board.getWidth(), cell / board.getWidth());
+            played = true;
+        }
+        for (int cell = solver.nextMineCell(); cell >= 0 && !board.isFinished(); cell = solver.nextMineCell()) {
+            board.toggleFlag(cell % board.getWidth(), cell / board.getWidth());
+            played = true;
+        }
+        return played;
+    }
+
+    /**
+     * @return A random closed, unflagged and unproven cell next to an opened cell that isn't
+     * a mine, or -1 if there is none.
+     */
+    private static int findClosedSafeFrontierCell(Board board, Solver solver, SplitMix64 random) {
+        int width = board.getWidth();
+        int height = board.getHeight();
+        int start = random.nextInt(width * height);
+        for (int i = 0; i < width * height; i++) {
+            int index = (start + i) % (width * height);
+            int x = index % width;
+            int y = index / width;
+            if (board.isOpened(x, y) || board.isFlagged(x, y) || board.isMine(x, y)
+                    || solver.isKnownSafe(x, y) || solver.isKnownMine(x, y)) {
+                continue;
+            }
+            for (int ny = Math.max(y - 1, 0); ny <= Math.min(y + 1, height - 1); ny++) {
+                for (int nx = Math.max(x - 1, 0); nx <= Math.min(x + 1, width - 1); nx++) {
+                    if (board.isOpened(nx, ny)) {
+                        return index;
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static void checkProofs(Board board, Solver solver, int game) {
+        for (int y = 0; y < board.getHeight(); y++) {
+            for (int x = 0; x < board.getWidth(); x++) {
+                if (solver.isKnownSafe(x, y)) {
+                    assertFalse("game " + game + ": mine at " + x + "," + y + " proven safe",
+                            board.isMine(x, y));
+                }
+                if (solver.isKnownMine(x, y)) {
+                    assertTrue("game " + game + ": safe cell at " + x + "," + y + " proven a mine",
+                            board.isMine(x, y));
+                }
+            }
+        }
+    }
+
+}
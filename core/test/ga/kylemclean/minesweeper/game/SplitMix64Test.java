@@ -0,0 +1,21 @@
+package ga.kylemclean.minesweeper.game;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class SplitMix64Test {
+
+    /**
+     * Reseeding must give the same sequence as a new generator, even for nextGaussian(),
+     * which Random makes in pairs and keeps the second of.
+     */
+    @Test
+    public void reseedingRestartsGaussians() {
+        SplitMix64 random = new SplitMix64(3);
+        double first = random.nextGaussian();
+        random.setSeed(3);
+        assertEquals(first, random.nextGaussian(), 0);
+    }
+
+}
@@ -0,0 +1,188 @@
+package ga.kylemclean.minesweeper.screens;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.TextureData;
+import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.g2d.GlyphLayout;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import ga.kylemclean.minesweeper.Allocations;
+
+import static org.junit.Assert.assertEquals;
+
+public class HudTest {
+
+    /** The frames drawn per second while the allocations are counted. */
+    private static final int FRAMES_PER_SECOND = 60;
+    /** The hours of frames played, the first of which lays out every text for the first time. */
+    private static final int MEASURED_HOURS = 8;
+
+    private static BitmapFont font;
+
+    /**
+     * Load the game's font without a display. Its texture is never drawn, so GL calls are
+     * answered by a stub that does nothing.
+     */
+    @BeforeClass
+    public static void loadFont() {
+        GL20 gl = (GL20) Proxy.newProxyInstance(GL20.class.getClassLoader(), new Class<?>[] {GL20.class},
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        Class<?> type = method.getReturnType();
+                        if (type == int.class) {
+                            return 0;
+                        } else if (type == boolean.class) {
+                            return false;
+                        } else if (type == float.class) {
+                            return 0f;
+                        }
+                        return null;
+                    }
+                });
+        Gdx.gl = gl;
+        Gdx.gl20 = gl;
+        Texture texture = new Texture(new StubTextureData(512, 512));
+        font = new BitmapFont(new BitmapFont.BitmapFontData(new FileHandle("ui/arial-32.fnt"), false),
+                new TextureRegion(texture), true);
+    }
+
+    @Test
+    public void formatsCounterAndTime() {
+        Hud hud = new Hud(font);
+        hud.setCounter(7, 3);
+        hud.setTime(0);
+        assertEquals("007", text(hud.counterLayout));
+        assertEquals("0:00", text(hud.timeLayout));
+        hud.setCounter(42, 3);
+        hud.setTime(61.9f);
+        assertEquals("042", text(hud.counterLayout));
+        assertEquals("1:01", text(hud.timeLayout));
+        hud.setCounter(-3, 3);
+        hud.setTime(600);
+        assertEquals("-3", text(hud.counterLayout));
+        assertEquals("10:00", text(hud.timeLayout));
+        hud.setCounter(123456, 1);
+        assertEquals("123456", text(hud.counterLayout));
+    }
+
+    /**
+     * Updating the HUD every frame of an hour's play, with the timer ticking every second and
+     * the counter changing every few seconds, must not allocate.
+     * <p>
+     * The JIT compiler can allocate a few bytes on the thread while it swaps in compiled code,
+     * so the fewest bytes over several hours is checked. Text that allocated when laid out
+     * would allocate in every one of them.
+     */
+    @Test
+    public void updatingDoesNotAllocate() {
+        Hud hud = new Hud(font);
+        long overhead = Allocations.overhead();
+        long fewest = Long.MAX_VALUE;
+        for (int hour = 0; hour < MEASURED_HOURS; hour++) {
+            long start = Allocations.allocatedBytes();
+            playFrames(hud, 60 * 60 * FRAMES_PER_SECOND);
+            fewest = Math.min(fewest, Allocations.allocatedBytes() - start - overhead);
+        }
+        assertEquals("bytes allocated over an hour of frames", 0, fewest);
+    }
+
+    private static void playFrames(Hud hud, int frames) {
+        for (int frame = 0; frame < frames; frame++) {
+            hud.setCounter(99 - frame / (5 * FRAMES_PER_SECOND) % 100, 3);
+            hud.setTime((float) frame / FRAMES_PER_SECOND);
+        }
+    }
+
+    /**
+     * @return The characters a layout was last laid out with.
+     */
+    private static String text(GlyphLayout layout) {
+        java.lang.StringBuilder text = new java.lang.StringBuilder();
+        for (GlyphLayout.GlyphRun run : layout.runs) {
+            for (BitmapFont.Glyph glyph : run.glyphs) {
+                text.append((char) glyph.id);
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * Texture data with nothing to upload.
+     */
+    private static class StubTextureData implements TextureData {
+
+        private final int width, height;
+
+        StubTextureData(int width, int height) {
+            this.width = width;
+            this.height = height;
+        }
+
+        @Override
+        public TextureDataType getType() {
+            return TextureDataType.Custom;
+        }
+
+        @Override
+        public boolean isPrepared() {
+            return true;
+        }
+
+        @Override
+        public void prepare() {
+        }
+
+        @Override
+        public Pixmap consumePixmap() {
+            return null;
+        }
+
+        @Override
+        public boolean disposePixmap() {
+            return false;
+        }
+
+        @Override
+        public void consumeCustomData(int target) {
+        }
+
+        @Override
+        public int getWidth() {
+            return width;
+        }
+
+        @Override
+        public int getHeight() {
+            return height;
+        }
+
+        @Override
+        public Pixmap.Format getFormat() {
+            return Pixmap.Format.RGBA8888;
+        }
+
+        @Override
+        public boolean useMipMaps() {
+            return false;
+        }
+
+        @Override
+        public boolean isManaged() {
+            return false;
+        }
+
+    }
+
+}
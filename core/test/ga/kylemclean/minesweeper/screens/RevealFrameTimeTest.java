@@ -0,0 +1,89 @@
+package ga.kylemclean.minesweeper.screens;
+
+import org.junit.Test;
+
+import ga.kylemclean.minesweeper.game.Board;
+import ga.kylemclean.minesweeper.game.GameSnapshot;
+import ga.kylemclean.minesweeper.game.Solver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RevealFrameTimeTest {
+
+    private static final int SIZE = 2000;
+    /** The time in nanoseconds of one frame at 60 frames per second. */
+    private static final long FRAME_TIME = 1000000000L / 60;
+
+    /**
+     * Opening an empty 2000x2000 board is revealed over many frames as GameScreen does it,
+     * and no frame's share of the reveal takes longer than a frame at 60 frames per second.
+     */
+    @Test
+    public void revealingHugeEmptyBoardKeepsFrameRate() {
+        Board board = new Board(SIZE, SIZE, 0);
+        // The solver follows the board in the game, and looks again at every span opened.
+        Solver solver = new Solver(board);
+        // Warm up, so that the time measured is that of compiled code.
+        for (int i = 0; i < 3; i++) {
+            reveal(board);
+        }
+
+        long[] frames = reveal(board);
+        assertTrue("the board was won", board.isWon());
+        assertTrue("the reveal took " + frames[0] + " frames", frames[0] > 1);
+        assertTrue("the longest frame took " + frames[1] / 1000 + " us", frames[1] < FRAME_TIME);
+        solver.dispose();
+    }
+
+    /**
+     * Saving a game part way through a reveal, as pausing does, must not finish the reveal
+     * behind GameScreen's back: finishing it can win the game, which GameScreen has to check
+     * for itself, as pause() does after finishing it.
+     */
+    @Test
+    public void pausingMidRevealLeavesWinToGameScreen() {
+        Board board = new Board(SIZE, SIZE, 0);
+        board.generate(SIZE / 2, SIZE / 2);
+        board.openGradually(SIZE / 2, SIZE / 2, GameScreen.REVEAL_STEP_CELLS);
+        for (int i = 0; i < 2 && board.isOpening(); i++) {
+            GameScreen.continueReveal(board);
+        }
+        assertTrue("the reveal is still going", board.isOpening());
+        int opened = board.getCellsOpened();
+
+        GameSnapshot snapshot = new GameSnapshot();
+        snapshot.capture(board, 0, false, 0);
+        assertTrue("the reveal is still going after saving", board.isOpening());
+        assertEquals(opened, board.getCellsOpened());
+        assertEquals(opened, snapshot.getCellsOpened());
+        assertFalse(board.isWon());
+
+        GameScreen.finishReveal(board);
+        assertFalse(board.isOpening());
+        assertTrue("the board was won", board.isWon());
+    }
+
+    /**
+     * Open the centre of the board, and then reveal the rest a frame at a time.
+     *
+     * @return The number of frames the reveal took and the longest time one of them took.
+     */
+    private static long[] reveal(Board board) {
+        board.reset();
+        board.generate(SIZE / 2, SIZE / 2);
+        long start = System.nanoTime();
+        board.openGradually(SIZE / 2, SIZE / 2, GameScreen.REVEAL_STEP_CELLS);
+        long longest = System.nanoTime() - start;
+        long frames = 1;
+        while (board.isOpening()) {
+            start = System.nanoTime();
+            GameScreen.continueReveal(board);
+            longest = Math.max(longest, System.nanoTime() - start);
+            frames++;
+        }
+        return new long[] {frames, longest};
+    }
+
+}
@@ -2,15 +2,41 @@ package ga.kylemclean.minesweeper.desktop;
 
 import com.badlogic.gdx.backends.lwjgl.LwjglApplication;
 import com.badlogic.gdx.backends.lwjgl.LwjglApplicationConfiguration;
+
+import java.io.File;
+
 import ga.kylemclean.minesweeper.Minesweeper;
 
+/**
+ * Usage: {@code DesktopLauncher [--jfr [FILE]] [--measure-frames]}
+ * <p>
+ * {@code --jfr} records the session with Java Flight Recorder, including an event for every
+ * move and board generated, and writes it to FILE, by default minesweeper.jfr, on exit.
+ * <p>
+ * {@code --measure-frames} logs the number of frames drawn each minute.
+ */
 public class DesktopLauncher {
-	public static void main (String[] arg) {
+	public static void main (String[] arg) throws Exception {
+		Minesweeper game = new Minesweeper();
+		for (int i = 0; i < arg.length; i++) {
+			if (arg[i].equals("--jfr")) {
+				String file = i + 1 < arg.length && !arg[i + 1].startsWith("--") ? arg[++i] : "minesweeper.jfr";
+				JfrGameTracer.startRecording(new File(file));
+				System.out.println("Recording to " + new File(file).getAbsolutePath());
+			} else if (arg[i].equals("--measure-frames")) {
+				game.renderScheduler.setMeasuring(true);
+			} else {
+				System.err.println("Unknown option: " + arg[i]);
+				System.err.println("Usage: DesktopLauncher [--jfr [FILE]] [--measure-frames]");
+				System.exit(2);
+			}
+		}
+
 		LwjglApplicationConfiguration config = new LwjglApplicationConfiguration();
 
 		config.width = 1280;
 		config.height = 720;
 
-		new LwjglApplication(new Minesweeper(), config);
+		new LwjglApplication(game, config);
 	}
 }
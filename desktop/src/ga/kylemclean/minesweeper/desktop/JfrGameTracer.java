@@ -0,0 +1,139 @@
+package ga.kylemclean.minesweeper.desktop;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.ParseException;
+
+import ga.kylemclean.minesweeper.game.Board;
+import ga.kylemclean.minesweeper.game.GameTracer;
+import jdk.jfr.Category;
+import jdk.jfr.Configuration;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+
+/**
+ * Sends the game's traced operations to Java Flight Recorder as events, so that latency in a
+ * recording can be matched up with the moves and board sizes that caused it.
+ * <p>
+ * Each operation is its own event type under the "Minesweeper" category, timed by JFR from
+ * {@link #begin(int)} to {@link #end(Object, Board, int)}. Whether each type is turned on is
+ * checked before its event is created, so an operation that isn't recorded allocates nothing.
+ */
+public class JfrGameTracer extends GameTracer {
+
+    @Category("Minesweeper")
+    abstract static class GameEvent extends Event {
+        @Label("Width")
+        int width;
+        @Label("Height")
+        int height;
+        @Label("Mines")
+        int mines;
+        @Label("Cells Opened")
+        @Description("The cells the operation opened")
+        int cellsOpened;
+    }
+
+    @Name("minesweeper.TouchUp")
+    @Label("Touch Up")
+    @Description("Handling a tap or click released on the board")
+    static class TouchUpEvent extends GameEvent {
+    }
+
+    @Name("minesweeper.OpenCell")
+    @Label("Open Cell")
+    @Description("Opening a cell, up to the first part of a large empty region")
+    static class OpenCellEvent extends GameEvent {
+    }
+
+    @Name("minesweeper.ChordCell")
+    @Label("Chord Cell")
+    @Description("Opening the neighbours of a satisfied cell")
+    static class ChordCellEvent extends GameEvent {
+    }
+
+    @Name("minesweeper.GenerateMines")
+    @Label("Generate Mines")
+    @Description("Placing the mines of a new board")
+    static class GenerateMinesEvent extends GameEvent {
+    }
+
+    @Name("minesweeper.GenerateCellLabels")
+    @Label("Generate Cell Labels")
+    @Description("Counting the mines around every cell")
+    static class GenerateCellLabelsEvent extends GameEvent {
+    }
+
+    /** The event type of each operation, indexed by the operation. */
+    private final EventType[] eventTypes = {
+            EventType.getEventType(TouchUpEvent.class),
+            EventType.getEventType(OpenCellEvent.class),
+            EventType.getEventType(ChordCellEvent.class),
+            EventType.getEventType(GenerateMinesEvent.class),
+            EventType.getEventType(GenerateCellLabelsEvent.class),
+    };
+
+    /**
+     * Start a recording with JFR's "profile" settings, which is written to a file when the
+     * app exits, and trace the game's operations into it.
+     *
+     * @param file The file to write the recording to.
+     * @return The recording, already started.
+     */
+    public static Recording startRecording(File file) throws IOException, ParseException {
+        Recording recording = new Recording(Configuration.getConfiguration("profile"));
+        recording.setName("Minesweeper");
+        recording.setDestination(file.toPath());
+        recording.setDumpOnExit(true);
+        recording.start();
+        GameTracer.set(new JfrGameTracer());
+        return recording;
+    }
+
+    @Override
+    public Object begin(int operation) {
+        if (operation < 0 || operation >= eventTypes.length || !eventTypes[operation].isEnabled()) {
+            return null;
+        }
+        GameEvent event;
+        switch (operation) {
+            case TOUCH_UP:
+                event = new TouchUpEvent();
+                break;
+            case OPEN_CELL:
+                event = new OpenCellEvent();
+                break;
+            case CHORD_CELL:
+                event = new ChordCellEvent();
+                break;
+            case GENERATE_MINES:
+                event = new GenerateMinesEvent();
+                break;
+            case GENERATE_CELL_LABELS:
+                event = new GenerateCellLabelsEvent();
+                break;
+            default:
+                return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void end(Object event, Board board, int cellsOpened) {
+        GameEvent gameEvent = (GameEvent) event;
+        gameEvent.end();
+        if (gameEvent.shouldCommit()) {
+            gameEvent.width = board.getWidth();
+            gameEvent.height = board.getHeight();
+            gameEvent.mines = board.getMines();
+            gameEvent.cellsOpened = cellsOpened;
+            gameEvent.commit();
+        }
+    }
+
+}
@@ -0,0 +1,228 @@
+package ga.kylemclean.minesweeper.desktop;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import ga.kylemclean.minesweeper.game.Board;
+import ga.kylemclean.minesweeper.game.ProbabilityEngine;
+import ga.kylemclean.minesweeper.game.SolverStrategy;
+import ga.kylemclean.minesweeper.game.SplitMix64;
+import ga.kylemclean.minesweeper.game.Strategy;
+
+/**
+ * Plays many games headlessly with a {@link Strategy} on every core, and reports the win rate,
+ * the mean number of clicks and the games played per second.
+ * <p>
+ * Game n is generated from a seed derived from the master seed and n, so results don't depend
+ * on the number of threads, and any game can be replayed on its own from its seed.
+ * <p>
+ * Usage: {@code SimulationLauncher [--size 30x16x99] [--games 1000000] [--threads N]
+ * [--seed S] [--strategy guess|logic] [--replay GAME_SEED]}
+ */
+public class SimulationLauncher {
+
+    /** The number of lost game seeds printed at the end, for replaying. */
+    private static final int LOST_SEEDS_SHOWN = 10;
+
+    private int width = 30, height = 16, mines = 99;
+    private long games = 1000000;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private long seed = System.nanoTime();
+    private boolean guess = true;
+
+    private final AtomicLong nextGame = new AtomicLong();
+    private final AtomicLong gamesPlayed = new AtomicLong();
+    private final List<Long> lostSeeds = new ArrayList<Long>();
+
+    public static void main(String[] args) throws Exception {
+        SimulationLauncher simulation = new SimulationLauncher();
+        Long replaySeed = null;
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (i + 1 >= args.length) {
+                usage("Missing value for " + arg);
+            }
+            String value = args[++i];
+            if (arg.equals("--size")) {
+                String[] parts = value.split("x");
+                if (parts.length != 3) {
+                    usage("Size must be WIDTHxHEIGHTxMINES: " + value);
+                }
+                simulation.width = Integer.parseInt(parts[0]);
+                simulation.height = Integer.parseInt(parts[1]);
+                simulation.mines = Integer.parseInt(parts[2]);
+            } else if (arg.equals("--games")) {
+                simulation.games = Long.parseLong(value);
+            } else if (arg.equals("--threads")) {
+                simulation.threads = Math.max(1, Integer.parseInt(value));
+            } else if (arg.equals("--seed")) {
+                simulation.seed = Long.parseLong(value);
+            } else if (arg.equals("--strategy")) {
+                if (!value.equals("guess") && !value.equals("logic")) {
+                    usage("Unknown strategy: " + value);
+                }
+                simulation.guess = value.equals("guess");
+            } else if (arg.equals("--replay")) {
+                replaySeed = Long.parseLong(value);
+            } else {
+                usage("Unknown option: " + arg);
+            }
+        }
+
+        if (replaySeed != null) {
+            simulation.replay(replaySeed);
+        } else {
+            simulation.run();
+        }
+    }
+
+    private static void usage(String error) {
+        System.err.println(error);
+        System.err.println("Usage: SimulationLauncher [--size 30x16x99] [--games 1000000] [--threads N]"
+                + " [--seed S] [--strategy guess|logic] [--replay GAME_SEED]");
+        System.exit(1);
+    }
+
+    /**
+     * Get the seed of a game, mixing its number into the master seed so that neighbouring
+     * games get unrelated boards.
+     */
+    private static long gameSeed(long seed, long game) {
+        return SplitMix64.mix(seed + (game + 1) * SplitMix64.GOLDEN_GAMMA);
+    }
+
+    /**
+     * Play every game, printing progress once a second and the results at the end.
+     */
+    private void run() throws Exception {
+        System.out.println("Playing " + games + " games of " + width + "x" + height + " with " + mines
+                + " mines on " + threads + " threads, strategy " + (guess ? "guess" : "logic")
+                + ", seed " + seed);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<long[]>> results = new ArrayList<Future<long[]>>();
+        long startTime = System.nanoTime();
+        for (int i = 0; i < threads; i++) {
+            results.add(executor.submit(new Callable<long[]>() {
+                @Override
+                public long[] call() {
+                    return playGames();
+                }
+            }));
+        }
+        executor.shutdown();
+        while (!executor.isTerminated()) {
+            Thread.sleep(1000);
+            long played = gamesPlayed.get();
+            double seconds = (System.nanoTime() - startTime) / 1e9;
+            System.out.printf("%d / %d games, %.0f games/s%n", played, games, played / seconds);
+        }
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+
+        long won = 0;
+        long clicks = 0;
+        for (Future<long[]> result : results) {
+            long[] totals = result.get();
+            won += totals[0];
+            clicks += totals[1];
+        }
+        System.out.printf("Won %d of %d games (%.3f%%)%n", won, games, 100.0 * won / games);
+        System.out.printf("Mean clicks per game: %.2f%n", (double) clicks / games);
+        System.out.printf("%.0f games/s (%.0f games/s per thread) in %.1f s%n",
+                games / seconds, games / seconds / threads, seconds);
+        synchronized (lostSeeds) {
+            if (!lostSeeds.isEmpty()) {
+                System.out.println("Lost games, replay with --replay <seed>: " + lostSeeds);
+            }
+        }
+    }
+
+    /**
+     * One thread's share of the games, with its own board and strategy.
+     *
+     * @return The number of games won and the total number of clicks.
+     */
+    private long[] playGames() {
+        Board board = new Board(width, height, mines);
+        Strategy strategy = createStrategy();
+        SplitMix64 random = new SplitMix64(0);
+        long won = 0;
+        long clicks = 0;
+        long game;
+        while ((game = nextGame.getAndIncrement()) < games) {
+            long gameSeed = gameSeed(seed, game);
+            clicks += play(board, strategy, random, gameSeed);
+            if (board.isWon()) {
+                won++;
+            } else {
+                synchronized (lostSeeds) {
+                    if (lostSeeds.size() < LOST_SEEDS_SHOWN) {
+                        lostSeeds.add(gameSeed);
+                    }
+                }
+            }
+            gamesPlayed.incrementAndGet();
+        }
+        return new long[] {won, clicks};
+    }
+
+    /**
+     * Create the strategy to play with. Guesses are limited by work rather than time, so that
+     * games play out the same on any machine and under any load.
+     */
+    private Strategy createStrategy() {
+        SolverStrategy strategy = new SolverStrategy(guess);
+        strategy.setGuessBudget(ProbabilityEngine.DEFAULT_NODE_BUDGET, 0);
+        return strategy;
+    }
+
+    /**
+     * Play one game from a seed, opening the centre cell first.
+     *
+     * @return The number of clicks made, including the first.
+     */
+    private int play(Board board, Strategy strategy, SplitMix64 random, long gameSeed) {
+        board.reset();
+        strategy.start(board);
+        random.setSeed(gameSeed);
+        board.generate(width / 2, height / 2, random);
+        board.open(width / 2, height / 2);
+        int clicks = 1;
+        while (!board.isFinished() && strategy.move()) {
+            clicks++;
+        }
+        return clicks;
+    }
+
+    /**
+     * Play a single game again and print the board as it was left.
+     */
+    private void replay(long gameSeed) {
+        Board board = new Board(width, height, mines);
+        int clicks = play(board, createStrategy(), new SplitMix64(0), gameSeed);
+        System.out.println("Game " + gameSeed + ": " + (board.isWon() ? "won" : board.isLost() ? "lost" : "gave up")
+                + " after " + clicks + " clicks, " + board.getCellsOpened() + " cells opened");
+        StringBuilder line = new StringBuilder(width);
+        for (int y = height - 1; y >= 0; y--) {
+            line.setLength(0);
+            for (int x = 0; x < width; x++) {
+                if (board.isOpened(x, y)) {
+                    int surroundingMines = board.getSurroundingMines(x, y);
+                    line.append(board.isMine(x, y) ? 'X' : surroundingMines == 0 ? ' ' : (char) ('0' + surroundingMines));
+                } else if (board.isFlagged(x, y)) {
+                    line.append(board.isMine(x, y) ? 'F' : 'f');
+                } else {
+                    line.append(board.isMine(x, y) ? '*' : '.');
+                }
+            }
+            System.out.println(line);
+        }
+        System.out.println("X: mine opened, F: flag, f: wrong flag, *: mine, .: closed");
+    }
+
+}